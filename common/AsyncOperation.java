@@ -0,0 +1,215 @@
+// One STORE or LOOKUP in event-driven mode. The walk keeps up to kadA RPCs in flight and
+// sends the next one as soon as any reply arrives, instead of waiting for a whole round.
+// A STORE converges like a FIND_NODE and then sends STORE to the kadK best peers, finishing
+// when all of them have acknowledged; a LOOKUP finishes on the first VALUE reply or when
+// the walk converges without one. A LOOKUP first asks its directory probes (cluster members
+// whose summary matches, and the key's cluster cache home) and on success leaves copies there (CLUSTER_CACHE) and at the closest peer that answered
+// without the value (CACHE). Hops count the FIND_NODE / FIND_VALUE RPCs sent and
+// latency is the simulated time from start to finish. With rpc_timeout set, an RPC that
+// gets no reply in time marks its peer dead: the origin evicts it and the walk, or the
+// STORE phase, goes on without it, ignoring a reply that comes later.
+import peersim.core.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class AsyncOperation {
+    private static long nextId = 0;
+
+    final long id = nextId++;
+    private final DhtProtocol origin;
+    private final long key;
+    private final boolean store;
+    private final long startTime;
+    private final Shortlist shortlist;
+    private final Consumer<StoreResult> onStore;
+    private final Consumer<LookupResult> onLookup;
+
+    private int inFlight = 0;
+    private int pendingStores = -1;
+    private int acks = 0;
+    // RPCs whose reply is still expected, by number, with the peer asked
+    private final Map<Integer, Node> awaiting = new HashMap<>();
+    private int nextRpc = 0;
+    private int rpcs = 0;
+    private int intraMessages = 0;
+    private int interMessages = 0;
+    private boolean finished = false;
+    // LOOKUP: the peer closest to key (unsigned XOR) that answered without the value
+    private Node closestMiss = null;
+    private long closestMissDistance = -1;
+    // LOOKUP: the key's cluster cache home (see DhtProtocol.clusterCacheHome), or null, and
+    // the members asked before the walk
+    private Node home = null;
+    private Node[] probes = new Node[0];
+
+    private AsyncOperation(DhtProtocol origin, long key, boolean store,
+                           Consumer<StoreResult> onStore, Consumer<LookupResult> onLookup) {
+        this.origin = origin;
+        this.key = key;
+        this.store = store;
+        this.onStore = onStore;
+        this.onLookup = onLookup;
+        this.startTime = CommonState.getTime();
+        this.shortlist = new Shortlist(origin.getKadK(), origin.getKadA());
+    }
+
+    static AsyncOperation store(DhtProtocol origin, long key, Consumer<StoreResult> done) {
+        return new AsyncOperation(origin, key, true, done, null);
+    }
+
+    static AsyncOperation lookup(DhtProtocol origin, long key, Consumer<LookupResult> done) {
+        return new AsyncOperation(origin, key, false, null, done);
+    }
+
+    long key() {
+        return key;
+    }
+
+    // Seeds the shortlist from the origin's own table and sends the first kadA RPCs; a LOOKUP
+    // with directory probes asks only those first and starts walking once one has missed
+    void start(Node[] seeds) {
+        offer(seeds);
+        if (!store) {
+            home = origin.clusterCacheHome(key);
+            Node[] found = new Node[origin.getKadA() + 1];
+            probes = Arrays.copyOf(found, origin.directoryProbes(key, home, found, null));
+        }
+        for (Node probe : probes) {
+            shortlist.addQueried(probe, origin.getScorer().score(probe, key));
+            send(probe, KademliaMessage.FIND_VALUE);
+            inFlight++;
+            rpcs++;
+        }
+        if (probes.length == 0) {
+            advance();
+        }
+    }
+
+    private boolean isProbe(Node peer) {
+        for (Node probe : probes) {
+            if (probe == peer) return true;
+        }
+        return false;
+    }
+
+    void onReply(KademliaMessage reply) {
+        if (finished || awaiting.remove(reply.rpc) == null) return;
+        switch (reply.type) {
+            case KademliaMessage.NODES:
+                inFlight--;
+                if (!store && !isProbe(reply.sender)
+                        && Long.compareUnsigned(reply.sender.getID() ^ key, closestMissDistance) < 0) {
+                    closestMiss = reply.sender;
+                    closestMissDistance = reply.sender.getID() ^ key;
+                }
+                // Directory probes answer only for the value; their peers would pull the walk
+                // into the cluster, away from the replicas
+                if (!isProbe(reply.sender)) {
+                    offer(reply.nodes);
+                }
+                advance();
+                break;
+            case KademliaMessage.VALUE:
+                inFlight--;
+                if (home == origin.getSelfNode()) {
+                    origin.storeClusterCopy(key);
+                } else if (home != null && reply.sender != home) {
+                    send(home, KademliaMessage.CLUSTER_CACHE);
+                }
+                if (closestMiss != null && origin.protocolOf(closestMiss).cachesPathCopies()) {
+                    send(closestMiss, KademliaMessage.CACHE, new Node[] { reply.sender });
+                }
+                finish(true);
+                break;
+            case KademliaMessage.STORE_OK:
+                acks++;
+                if (--pendingStores == 0) {
+                    finish(true);
+                }
+                break;
+        }
+    }
+
+    // RPC rpc went unanswered; ignored if its reply came in time
+    void onTimeout(int rpc) {
+        Node peer = finished ? null : awaiting.remove(rpc);
+        if (peer == null) return;
+        origin.evictDead(peer);
+        if (pendingStores >= 0) {
+            if (--pendingStores == 0) {
+                finish(true);
+            }
+            return;
+        }
+        shortlist.remove(peer);
+        inFlight--;
+        advance();
+    }
+
+    private void offer(Node[] peers) {
+        Node self = origin.getSelfNode();
+        PeerScorer scorer = origin.getScorer();
+        boolean learnPeers = store && origin.learnsPeersOnStore();
+        for (Node peer : peers) {
+            if (peer != self && shortlist.add(peer, scorer.score(peer, key)) && learnPeers) {
+                origin.addPeer(peer);
+            }
+        }
+    }
+
+    // Tops the in-flight RPCs back up to kadA; once nothing is in flight and every peer in
+    // the shortlist has answered, the walk has converged
+    private void advance() {
+        int free = origin.getKadA() - inFlight;
+        int picked = free > 0 ? shortlist.nextRound(free) : 0;
+        int type = store ? KademliaMessage.FIND_NODE : KademliaMessage.FIND_VALUE;
+        for (int i = 0; i < picked; i++) {
+            send(shortlist.roundPeer(i), type);
+            inFlight++;
+            rpcs++;
+        }
+        if (inFlight > 0) return;
+
+        if (!store) {
+            finish(false);
+        } else if (shortlist.size() == 0) {
+            finish(true);
+        } else {
+            pendingStores = shortlist.size();
+            for (int i = 0; i < shortlist.size(); i++) {
+                send(shortlist.get(i), KademliaMessage.STORE);
+            }
+        }
+    }
+
+    private void send(Node peer, int type) {
+        send(peer, type, null);
+    }
+
+    private void send(Node peer, int type, Node[] nodes) {
+        if (origin.protocolOf(peer).getClusterId() == origin.getClusterId()) {
+            intraMessages++;
+        } else {
+            interMessages++;
+        }
+        int rpc = nextRpc++;
+        origin.send(peer, new KademliaMessage(type, id, rpc, origin.getSelfNode(), key, nodes));
+        if (type == KademliaMessage.FIND_NODE || type == KademliaMessage.FIND_VALUE || type == KademliaMessage.STORE) {
+            awaiting.put(rpc, peer);
+            origin.awaitReply(this, rpc, peer);
+        }
+    }
+
+    private void finish(boolean success) {
+        finished = true;
+        long latency = CommonState.getTime() - startTime;
+        origin.operationDone(this);
+        if (store) {
+            origin.recordStore(intraMessages, interMessages);
+            onStore.accept(new StoreResult(rpcs, latency, acks, intraMessages, interMessages));
+        } else {
+            origin.recordLookup(intraMessages, interMessages);
+            onLookup.accept(new LookupResult(success, rpcs, latency, intraMessages, interMessages));
+        }
+    }
+}
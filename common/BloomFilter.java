@@ -0,0 +1,72 @@
+// Fixed-size Bloom filter over long keys, used as a node's published content summary.
+// Probe positions come from double hashing (h1 + i * h2); the bit count is rounded up to a
+// power of two and a probe's position is the top bits of its hash, so the position in a
+// filter half the size is the same bit shifted right by one (SummaryIndex relies on this).
+// With b bits per key and k = b ln 2 probes the false-positive rate is about 0.6185^b,
+// e.g. 1% at 10 bits per key, or less once the size is rounded up.
+public class BloomFilter {
+    private final long[] bits;
+    private final int widthBits;
+    private final int probes;
+
+    // Sized for expectedKeys keys at bitsPerKey bits each
+    public BloomFilter(int expectedKeys, int bitsPerKey) {
+        long wanted = Math.max(64L, (long) expectedKeys * bitsPerKey);
+        this.widthBits = 64 - Long.numberOfLeadingZeros(wanted - 1);
+        this.bits = new long[1 << (widthBits - 6)];
+        this.probes = probes(bitsPerKey);
+    }
+
+    public void add(long key) {
+        long h1 = hash1(key);
+        long h2 = hash2(key);
+        for (int i = 0; i < probes; i++) {
+            long bit = position(h1 + i * h2, widthBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = hash1(key);
+        long h2 = hash2(key);
+        for (int i = 0; i < probes; i++) {
+            if (!get(position(h1 + i * h2, widthBits))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean get(long bit) {
+        return (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    // log2 of the bit count
+    int widthBits() {
+        return widthBits;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    static int probes(int bitsPerKey) {
+        return Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+    }
+
+    // Position of a probe's hash in a filter of 2^widthBits bits
+    static long position(long hash, int widthBits) {
+        return hash >>> (64 - widthBits);
+    }
+
+    static long hash1(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // Independent second hash, the stride between probes
+    static long hash2(long key) {
+        long h = (key ^ 0xC2B2AE3D27D4EB4FL) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,73 @@
+// Bootstrap peers for the initializers: every node gets perNode distinct other nodes, drawn
+// uniformly by Floyd's algorithm and put in random order, in O(perNode) time per node
+// instead of shuffling a list of all N nodes. Each node draws from its own generator, seeded
+// from the run's seed and the node's index, so nodes are sampled in parallel and the result
+// does not depend on the number of threads.
+import peersim.core.*;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public final class BootstrapPeers {
+    private BootstrapPeers() {
+    }
+
+    // Peers of node i are peers[i * perNode .. (i + 1) * perNode), as network indices;
+    // perNode must not exceed nodes - 1
+    public static int[] sample(int nodes, int perNode, long seed) {
+        int[] peers = new int[nodes * perNode];
+        IntStream.range(0, nodes).parallel().forEach(i -> sampleNode(i, nodes - 1, perNode, seed, peers));
+        return peers;
+    }
+
+    // Offers every node its peers in order. Nodes run in parallel: a node's table is only
+    // written by its own task, and the cluster index and other nodes are only read.
+    public static void offer(int[] peers, int perNode, int pid) {
+        IntStream.range(0, Network.size()).parallel().forEach(i -> {
+            DhtProtocol protocol = (DhtProtocol) Network.get(i).getProtocol(pid);
+            for (int j = i * perNode; j < (i + 1) * perNode; j++) {
+                protocol.addPeer(Network.get(peers[j]));
+            }
+        });
+    }
+
+    // Floyd's algorithm over the `others` nodes that are not i, written to i's slice
+    private static void sampleNode(int i, int others, int perNode, long seed, int[] peers) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(i)));
+        int base = i * perNode;
+        int chosen = 0;
+        for (int j = others - perNode; j < others; j++) {
+            int t = random.nextInt(j + 1);
+            peers[base + chosen] = contains(peers, base, chosen, t) ? j : t;
+            chosen++;
+        }
+        // Floyd picks a uniform set but not a uniform order, and the order decides which
+        // peers a full bucket keeps
+        for (int k = perNode - 1; k > 0; k--) {
+            int r = random.nextInt(k + 1);
+            int swap = peers[base + k];
+            peers[base + k] = peers[base + r];
+            peers[base + r] = swap;
+        }
+        // Skip over i itself
+        for (int k = base; k < base + perNode; k++) {
+            if (peers[k] >= i) {
+                peers[k]++;
+            }
+        }
+    }
+
+    // Linear scan, as perNode is about kadK / 2
+    private static boolean contains(int[] peers, int from, int count, int value) {
+        for (int k = from; k < from + count; k++) {
+            if (peers[k] == value) return true;
+        }
+        return false;
+    }
+
+    // SplitMix64 finalizer, so that neighbouring indices give unrelated seeds
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
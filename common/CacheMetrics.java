@@ -0,0 +1,90 @@
+// Network-wide content cache counters, one CSV row per tick: hits and misses of nodes'
+// own lookups in their caches, FIND_VALUEs from other nodes answered from a cache
+// (RemoteHits), entries inserted and evicted, and the average fill of the caches at the end
+// of the tick. Counters are summed over the network at each sample, so the nodes keep only
+// plain totals; a row holds the difference from the previous sample.
+import peersim.core.*;
+import java.io.*;
+import java.util.*;
+
+public class CacheMetrics {
+    public static final String CSV_HEADER = "Tick,Hits,Misses,HitRatio,RemoteHits,Insertions,Evictions,Occupancy";
+
+    private final int protocolID;
+    private final List<String> rows = new ArrayList<>();
+    // hits, misses, remote hits, insertions, evictions at the previous sample
+    private final long[] last = new long[5];
+    private final long[] now = new long[5];
+    private double occupancy = 0;
+
+    public CacheMetrics(int protocolID) {
+        this.protocolID = protocolID;
+    }
+
+    // False when the nodes have no caches, in which case there is nothing to report
+    public boolean enabled() {
+        return Network.size() > 0 && ((DhtProtocol) Network.get(0).getProtocol(protocolID)).hasCache();
+    }
+
+    // Adds the row for the tick that just ended
+    public void sample(int tickNumber) {
+        if (!enabled()) return;
+        collect();
+        long hits = now[0] - last[0];
+        long misses = now[1] - last[1];
+        rows.add(String.format(Locale.ROOT, "%d,%d,%d,%.4f,%d,%d,%d,%.4f",
+                tickNumber, hits, misses, hits + misses > 0 ? (double) hits / (hits + misses) : 0,
+                now[2] - last[2], now[3] - last[3], now[4] - last[4], occupancy));
+        System.arraycopy(now, 0, last, 0, now.length);
+    }
+
+    // One-line totals over the run, or null without caches
+    public String summary() {
+        if (!enabled()) return null;
+        collect();
+        long lookups = now[0] + now[1];
+        return String.format(Locale.ROOT,
+                "Cache: %d hits, %d misses (hit ratio %.2f%%), %d remote hits, %d insertions, %d evictions, occupancy %.2f%%",
+                now[0], now[1], lookups > 0 ? 100.0 * now[0] / lookups : 0, now[2], now[3], now[4], 100 * occupancy);
+    }
+
+    // Run totals as summary rows, none without caches
+    public void addTotals(RunSummary summary) {
+        if (!enabled()) return;
+        collect();
+        long lookups = now[0] + now[1];
+        summary.add("CacheHits", now[0]).add("CacheMisses", now[1])
+                .add("CacheHitRatio", lookups > 0 ? (double) now[0] / lookups : 0)
+                .add("CacheRemoteHits", now[2]).add("CacheInsertions", now[3]).add("CacheEvictions", now[4])
+                .add("CacheOccupancy", occupancy);
+    }
+
+    public void write(String filename) {
+        if (rows.isEmpty()) return;
+        try (PrintWriter writer = new PrintWriter(filename)) {
+            writer.println(CSV_HEADER);
+            for (String row : rows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private void collect() {
+        Arrays.fill(now, 0);
+        long size = 0;
+        long capacity = 0;
+        for (int i = 0; i < Network.size(); i++) {
+            DhtProtocol proto = (DhtProtocol) Network.get(i).getProtocol(protocolID);
+            now[0] += proto.getCacheHits();
+            now[1] += proto.getCacheMisses();
+            now[2] += proto.getCacheRemoteHits();
+            now[3] += proto.getCacheInsertions();
+            now[4] += proto.getCacheEvictions();
+            size += proto.getCacheSize();
+            capacity += Math.max(proto.getCacheCapacity(), 0);
+        }
+        occupancy = capacity > 0 ? (double) size / capacity : 0;
+    }
+}
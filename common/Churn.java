@@ -0,0 +1,320 @@
+// Churn for either simulator, after peersim.dynamics.DynamicNetwork: every node leaves after
+// a session time drawn for it, and new nodes arrive as a Poisson process. A departed node is
+// set DOWN rather than removed from the Network, so the network indices routing tables hand
+// out stay valid; it never comes back. Arrivals are fresh nodes (new IDs) set up by the
+// `init` NodeInitializers, as in DynamicNetwork, e.g. the variant's initializer, which joins
+// them through live contacts (see JoinBootstrap). Parameters:
+//  - hour: time units per hour (default 3600000, the ms of event-driven runs; in the
+//    cycle-driven simulator every request is one unit)
+//  - rate: share of the nodes leaving per hour (default 0.05), i.e. a mean session of
+//    1/rate hours; arrival_rate: arrivals per hour as a share of the initial size (default
+//    rate, which keeps the size steady); minsize/maxsize bound the number of live nodes
+//  - session: exponential (default) or pareto, whose shape (default 2) sets the tail
+//  - crash: share of departures that crash silently (default 0.5); the others leave
+//    gracefully (see DhtProtocol.leave)
+// Nobody is told of a crash: peers find out when an RPC goes unanswered, evict the contact
+// (and drop it from its cluster's index, where a crashed node stays listed until then)
+// and refill its bucket from the replacement cache (see RoutingTable), which in
+// event-driven runs takes protocol.<name>.rpc_timeout. Every `period` (default an hour) a
+// row goes to `file` (in `output_dir`): live nodes, joins, leaves and crashes with their
+// messages, dead contacts evicted, replicas lost and handed over, and stored keys that have
+// lost every live replica. Event-driven runs declare it as a control, FINAL as well to write
+// the CSV; the cycle-driven simulator runs it between requests when its `churn` parameter
+// names the churn's prefix.
+import peersim.*;
+import peersim.config.*;
+import peersim.core.*;
+import peersim.dynamics.*;
+import java.io.*;
+import java.util.*;
+
+public class Churn implements Control {
+    public static final String CSV_HEADER =
+            "Time,Live,Joins,Leaves,Crashes,JoinMessages,LeaveMessages,DeadContacts,LostReplicas,HandedOver,LostKeys";
+
+    // Indices into the counters
+    private static final int JOINS = 0;
+    private static final int LEAVES = 1;
+    private static final int CRASHES = 2;
+    private static final int JOIN_MESSAGES = 3;
+    private static final int LEAVE_MESSAGES = 4;
+    private static final int LOST_REPLICAS = 5;
+    private static final int HANDED_OVER = 6;
+
+    private final int protocolID;
+    private final double hour;
+    private final double rate;
+    private final double arrivalRate;
+    private final boolean pareto;
+    private final double shape;
+    private final double crashRatio;
+    private final int minSize;
+    private final int maxSize;
+    private final long period;
+    private final String file;
+    private final NodeInitializer[] inits;
+    private final SplittableRandom random = SimRandom.split();
+
+    private final PriorityQueue<Departure> departures = new PriorityQueue<>();
+    private double meanSession;
+    private double arrivalInterval;
+    private long nextArrival = Long.MAX_VALUE;
+    private long nextReport;
+    private long lastReport;
+    private boolean started = false;
+    private boolean closed = false;
+    private int live = 0;
+
+    private final long[] tick = new long[7];
+    private final long[] totals = new long[7];
+    private long lastDeadContacts = 0;
+    // Keys whose replicas sat on a departed node, still to be checked for a live holder
+    private LongHashSet atRisk = new LongHashSet(64);
+    private int lostKeys = 0;
+    private final List<String> rows = new ArrayList<>();
+
+    private static class Departure implements Comparable<Departure> {
+        final long time;
+        final Node node;
+
+        Departure(long time, Node node) {
+            this.time = time;
+            this.node = node;
+        }
+
+        public int compareTo(Departure other) {
+            int c = Long.compare(time, other.time);
+            return c != 0 ? c : Long.compare(node.getID(), other.node.getID());
+        }
+    }
+
+    public Churn(String prefix) {
+        String protocol = Configuration.getString(prefix + ".protocol");
+        this.protocolID = Configuration.lookupPid(protocol);
+        this.hour = Configuration.getDouble(prefix + ".hour", 3600000);
+        this.rate = Configuration.getDouble(prefix + ".rate", 0.05);
+        this.arrivalRate = Configuration.getDouble(prefix + ".arrival_rate", rate);
+        String session = Configuration.getString(prefix + ".session", "exponential");
+        if (!session.equals("exponential") && !session.equals("pareto")) {
+            throw new IllegalParameterException(prefix + ".session", "expected exponential or pareto, got " + session);
+        }
+        this.pareto = session.equals("pareto");
+        this.shape = Configuration.getDouble(prefix + ".shape", 2);
+        if (pareto && shape <= 1) {
+            throw new IllegalParameterException(prefix + ".shape", "a Pareto session needs shape > 1 to have a mean");
+        }
+        this.crashRatio = Configuration.getDouble(prefix + ".crash", 0.5);
+        this.minSize = Configuration.getInt(prefix + ".minsize", 0);
+        this.maxSize = Configuration.getInt(prefix + ".maxsize", Integer.MAX_VALUE);
+        this.period = Math.max(1, Configuration.getLong(prefix + ".period", Math.round(hour)));
+        this.file = StoreLookupSimulator.outputFile(Configuration.getString(prefix + ".output_dir", ""),
+                Configuration.getString(prefix + ".file", "churn_metrics.csv"));
+        Object[] instances = Configuration.getInstanceArray(prefix + ".init");
+        this.inits = new NodeInitializer[instances.length];
+        for (int i = 0; i < instances.length; i++) {
+            inits[i] = (NodeInitializer) instances[i];
+        }
+        if (Simulator.getSimID() == Simulator.EDSIM && Configuration.getLong("protocol." + protocol + ".rpc_timeout", 0) <= 0) {
+            throw new IllegalParameterException("protocol." + protocol + ".rpc_timeout",
+                    "churn in event-driven runs needs RPC timeouts to detect dead contacts");
+        }
+    }
+
+    // True if a departure, arrival or report is due, i.e. execute() would change something
+    public boolean due() {
+        long now = CommonState.getTime();
+        return !started || now >= nextReport || now >= nextArrival
+                || (!departures.isEmpty() && departures.peek().time <= now);
+    }
+
+    // Applies every departure and arrival due by now, in time order
+    public boolean execute() {
+        long now = CommonState.getTime();
+        if (!started) {
+            start(now);
+        }
+        while (true) {
+            long nextDeparture = departures.isEmpty() ? Long.MAX_VALUE : departures.peek().time;
+            if (Math.min(nextDeparture, nextArrival) > now) break;
+            if (nextArrival <= nextDeparture) {
+                arrive(nextArrival);
+                nextArrival += exponential(arrivalInterval);
+            } else {
+                Departure d = departures.poll();
+                depart(d.node, d.time);
+            }
+        }
+        while (now >= nextReport) {
+            report(nextReport);
+            nextReport += period;
+        }
+        if (CommonState.getPhase() == CommonState.POST_SIMULATION) {
+            close();
+        }
+        return false;
+    }
+
+    // Every node up now starts a session; arrivals keep pace with the initial size
+    private void start(long now) {
+        started = true;
+        meanSession = rate > 0 ? hour / rate : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < Network.size(); i++) {
+            Node node = Network.get(i);
+            if (node.isUp()) {
+                live++;
+                schedule(node, now);
+            }
+        }
+        if (arrivalRate > 0 && live > 0) {
+            arrivalInterval = hour / (arrivalRate * live);
+            nextArrival = now + exponential(arrivalInterval);
+        }
+        nextReport = now + period;
+        lastReport = now;
+    }
+
+    private void schedule(Node node, long now) {
+        if (Double.isInfinite(meanSession)) return;
+        departures.add(new Departure(now + session(), node));
+    }
+
+    // Session length in time units, at least one
+    private long session() {
+        double u = 1 - random.nextDouble();
+        double length = pareto
+                ? meanSession * (shape - 1) / shape / Math.pow(u, 1 / shape)
+                : -meanSession * Math.log(u);
+        return Math.max(1, (long) Math.min(length, Long.MAX_VALUE / 4));
+    }
+
+    private long exponential(double mean) {
+        return Math.max(1, (long) (-mean * Math.log(1 - random.nextDouble())));
+    }
+
+    private void arrive(long time) {
+        if (live >= maxSize) return;
+        Node node = (Node) Network.prototype.clone();
+        Network.add(node);
+        for (NodeInitializer init : inits) {
+            init.initialize(node);
+        }
+        DhtProtocol proto = protocol(node);
+        count(JOINS, 1);
+        count(JOIN_MESSAGES, proto.getIntraClusterJoin() + proto.getInterClusterJoin());
+        live++;
+        schedule(node, time);
+    }
+
+    private void depart(Node node, long time) {
+        if (!node.isUp()) return;
+        if (live <= minSize) {
+            schedule(node, time);
+            return;
+        }
+        DhtProtocol proto = protocol(node);
+        int replicas = proto.replicaCount();
+        int handedOver = 0;
+        if (random.nextDouble() < crashRatio) {
+            count(CRASHES, 1);
+        } else {
+            int contacts = proto.getKBucketSize();
+            handedOver = proto.leave();
+            proto.leaveCluster();
+            count(LEAVES, 1);
+            count(LEAVE_MESSAGES, contacts + handedOver);
+            count(HANDED_OVER, handedOver);
+        }
+        count(LOST_REPLICAS, replicas - handedOver);
+        proto.forEachReplica(atRisk::add);
+        node.setFailState(Fallible.DOWN);
+        live--;
+    }
+
+    private void count(int counter, long value) {
+        tick[counter] += value;
+        totals[counter] += value;
+    }
+
+    private void report(long time) {
+        long deadContacts = deadContacts();
+        lostKeys = checkLostKeys();
+        rows.add(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                time, live, tick[JOINS], tick[LEAVES], tick[CRASHES], tick[JOIN_MESSAGES], tick[LEAVE_MESSAGES],
+                deadContacts - lastDeadContacts, tick[LOST_REPLICAS], tick[HANDED_OVER], lostKeys));
+        lastDeadContacts = deadContacts;
+        lastReport = time;
+        Arrays.fill(tick, 0);
+    }
+
+    private long deadContacts() {
+        long total = 0;
+        for (int i = 0; i < Network.size(); i++) {
+            total += protocol(Network.get(i)).getDeadContacts();
+        }
+        return total;
+    }
+
+    // Keys at risk that no live node holds any more; the others are safe until another of
+    // their holders leaves, so only the lost ones stay at risk
+    private int checkLostKeys() {
+        if (atRisk.size() == 0) return 0;
+        LongHashSet held = new LongHashSet(atRisk.size());
+        for (int i = 0; i < Network.size(); i++) {
+            Node node = Network.get(i);
+            if (node.isUp()) {
+                protocol(node).forEachReplica(key -> {
+                    if (atRisk.contains(key)) {
+                        held.add(key);
+                    }
+                });
+            }
+        }
+        LongHashSet lost = new LongHashSet(Math.max(64, atRisk.size() - held.size()));
+        atRisk.forEach(key -> {
+            if (!held.contains(key)) {
+                lost.add(key);
+            }
+        });
+        atRisk = lost;
+        return lost.size();
+    }
+
+    // Writes the CSV, with a last row for the part of a period since the previous one, and
+    // prints the totals
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (!started) return;
+        if (CommonState.getTime() > lastReport) {
+            report(CommonState.getTime());
+        }
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println(CSV_HEADER);
+            for (String row : rows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+        System.out.println(summary());
+    }
+
+    public String summary() {
+        return String.format(Locale.ROOT,
+                "Churn: %d joins, %d leaves, %d crashes, %d live nodes; %d dead contacts evicted, %d replicas lost, %d handed over, %d keys without a live replica",
+                totals[JOINS], totals[LEAVES], totals[CRASHES], live, lastDeadContacts,
+                totals[LOST_REPLICAS], totals[HANDED_OVER], lostKeys);
+    }
+
+    // Run totals as summary rows
+    public void addTotals(RunSummary summary) {
+        summary.add("ChurnJoins", totals[JOINS]).add("ChurnLeaves", totals[LEAVES]).add("ChurnCrashes", totals[CRASHES])
+                .add("LiveNodes", live).add("DeadContacts", lastDeadContacts)
+                .add("LostReplicas", totals[LOST_REPLICAS]).add("HandedOverReplicas", totals[HANDED_OVER])
+                .add("LostKeys", lostKeys);
+    }
+
+    private DhtProtocol protocol(Node node) {
+        return (DhtProtocol) node.getProtocol(protocolID);
+    }
+}
@@ -0,0 +1,155 @@
+// Per-cluster index of member IDs: answers "which member of this cluster is XOR-closest
+// to an ID" without walking the whole network. Built by HKademliaInitializer and kept
+// current by DhtProtocol.setClusterId as nodes join or leave a cluster, along with the
+// members' published content summaries once a protocol asks for them (see SummaryIndex).
+import peersim.core.*;
+import java.util.Arrays;
+
+public class ClusterIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Per cluster: member IDs sorted as unsigned values, with their nodes alongside
+    private long[][] ids;
+    private Node[][] nodes;
+    private int[] sizes;
+    private volatile SummaryIndex summaries;
+
+    public ClusterIndex(int numClusters) {
+        this.ids = new long[numClusters][];
+        this.nodes = new Node[numClusters][];
+        this.sizes = new int[numClusters];
+    }
+
+    public void add(int cluster, Node node) {
+        ensureCluster(cluster);
+        long id = node.getID();
+        int size = sizes[cluster];
+        if (ids[cluster] == null) {
+            ids[cluster] = new long[INITIAL_CAPACITY];
+            nodes[cluster] = new Node[INITIAL_CAPACITY];
+        } else if (size == ids[cluster].length) {
+            ids[cluster] = Arrays.copyOf(ids[cluster], size * 2);
+            nodes[cluster] = Arrays.copyOf(nodes[cluster], size * 2);
+        }
+
+        long[] a = ids[cluster];
+        Node[] n = nodes[cluster];
+        // Members are usually added in ID order, so check the tail before searching
+        int pos = (size == 0 || Long.compareUnsigned(a[size - 1], id) <= 0) ? size : insertionPoint(a, size, id);
+        System.arraycopy(a, pos, a, pos + 1, size - pos);
+        System.arraycopy(n, pos, n, pos + 1, size - pos);
+        a[pos] = id;
+        n[pos] = node;
+        sizes[cluster]++;
+        if (summaries != null) {
+            summaries.add(cluster, node, CommonState.getTime());
+        }
+    }
+
+    public boolean remove(int cluster, Node node) {
+        if (cluster < 0 || cluster >= sizes.length || sizes[cluster] == 0) return false;
+
+        long[] a = ids[cluster];
+        Node[] n = nodes[cluster];
+        int size = sizes[cluster];
+        for (int i = insertionPoint(a, size, node.getID()); i < size && a[i] == node.getID(); i++) {
+            if (n[i] == node) {
+                System.arraycopy(a, i + 1, a, i, size - i - 1);
+                System.arraycopy(n, i + 1, n, i, size - i - 1);
+                n[size - 1] = null;
+                sizes[cluster]--;
+                if (summaries != null) {
+                    summaries.remove(cluster, node);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the member of the cluster whose ID is XOR-closest to targetId, or null if the
+    // cluster is empty. Within a sorted range that shares a common prefix, members with a 0
+    // at the first disagreeing bit all precede those with a 1, so each step keeps the half
+    // that matches the target's bit. Only bits where the range actually disagrees cost a
+    // binary search, giving O(log n) steps on a cluster of n members.
+    public Node closest(int cluster, long targetId) {
+        if (cluster < 0 || cluster >= sizes.length || sizes[cluster] == 0) return null;
+
+        long[] a = ids[cluster];
+        int lo = 0;
+        int hi = sizes[cluster];
+        while (hi - lo > 1 && a[lo] != a[hi - 1]) {
+            int bit = 63 - Long.numberOfLeadingZeros(a[lo] ^ a[hi - 1]);
+            int split = firstWithBit(a, lo, hi - 1, bit);
+            if (((targetId >>> bit) & 1L) == 0) {
+                hi = split;
+            } else {
+                lo = split;
+            }
+        }
+        return nodes[cluster][lo];
+    }
+
+    // The i-th member of the cluster in ID order, 0 <= i < size(cluster)
+    public Node member(int cluster, int i) {
+        return nodes[cluster][i];
+    }
+
+    public int size(int cluster) {
+        return (cluster < 0 || cluster >= sizes.length) ? 0 : sizes[cluster];
+    }
+
+    public int clusters() {
+        return sizes.length;
+    }
+
+    // The members' content summaries, published from now on once per period; created on
+    // the first call, whose arguments later calls ignore
+    public synchronized SummaryIndex summaries(long period, int bitsPerKey, int pid) {
+        if (summaries == null) {
+            summaries = new SummaryIndex(this, period, bitsPerKey, pid);
+        }
+        return summaries;
+    }
+
+    // The summaries if some protocol has asked for them, else null
+    public SummaryIndex summaries() {
+        return summaries;
+    }
+
+    // First index in [lo, hi] whose given bit is set; a[hi] is known to have it set
+    private static int firstWithBit(long[] a, int lo, int hi, int bit) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (((a[mid] >>> bit) & 1L) == 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // First index whose ID is >= id (unsigned)
+    private static int insertionPoint(long[] a, int size, long id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(a[mid], id) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void ensureCluster(int cluster) {
+        if (cluster < sizes.length) return;
+        int length = Math.max(cluster + 1, sizes.length * 2);
+        ids = Arrays.copyOf(ids, length);
+        nodes = Arrays.copyOf(nodes, length);
+        sizes = Arrays.copyOf(sizes, length);
+    }
+}
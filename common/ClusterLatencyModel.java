@@ -0,0 +1,27 @@
+// Two-level latency: a uniform draw within one range for hops inside a cluster and within
+// another for hops between clusters, both bounds included (min == max gives a fixed
+// latency). Defaults are 5-10ms and 20-40ms.
+import peersim.config.*;
+import java.util.SplittableRandom;
+
+public class ClusterLatencyModel implements LatencyModel {
+    private final int intraMin;
+    private final int intraMax;
+    private final int interMin;
+    private final int interMax;
+
+    public ClusterLatencyModel(String prefix) {
+        this.intraMin = Configuration.getInt(prefix + ".intra_min", 5);
+        this.intraMax = Configuration.getInt(prefix + ".intra_max", 10);
+        this.interMin = Configuration.getInt(prefix + ".inter_min", 20);
+        this.interMax = Configuration.getInt(prefix + ".inter_max", 40);
+    }
+
+    public long latency(DhtProtocol from, DhtProtocol to) {
+        // Drawn from this thread's seeded stream
+        SplittableRandom random = SimRandom.current();
+        return (from.getClusterId() == to.getClusterId())
+                ? intraMin + random.nextInt(intraMax - intraMin + 1)
+                : interMin + random.nextInt(interMax - interMin + 1);
+    }
+}
@@ -0,0 +1,28 @@
+// Transport for event-driven runs: each message is delayed by the sending protocol's
+// cluster-aware latency (DhtProtocol.calculateLatency), so ED and cycle-driven runs share
+// one latency model. protocol.<name>.protocol names the DHT protocol it serves.
+import peersim.core.*;
+import peersim.config.*;
+import peersim.edsim.*;
+import peersim.transport.*;
+
+public class ClusterLatencyTransport implements Transport {
+    private final int dhtPid;
+
+    public ClusterLatencyTransport(String prefix) {
+        this.dhtPid = Configuration.getPid(prefix + ".protocol");
+    }
+
+    // Stateless, so every node can share one instance
+    public Object clone() {
+        return this;
+    }
+
+    public void send(Node src, Node dest, Object msg, int pid) {
+        EDSimulator.add(getLatency(src, dest), msg, dest, pid);
+    }
+
+    public long getLatency(Node src, Node dest) {
+        return ((DhtProtocol) src.getProtocol(dhtPid)).calculateLatency(src, dest);
+    }
+}
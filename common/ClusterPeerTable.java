@@ -0,0 +1,52 @@
+// H-Kademlia KBucket insertion rules: a peer in the owner's cluster is always kept, while a
+// remote peer is only kept when the owner is the gateway for it, i.e. the member of the
+// owner's cluster XOR-closest to that peer.
+import peersim.core.*;
+
+public class ClusterPeerTable implements PeerTable {
+    private final DhtProtocol owner;
+    private final PeerSet peers = new PeerSet();
+
+    public ClusterPeerTable(DhtProtocol owner) {
+        this.owner = owner;
+    }
+
+    public boolean add(Node peer) {
+        int clusterId = owner.getClusterId();
+        long selfId = owner.getSelfNode().getID();
+
+        if (owner.protocolOf(peer).getClusterId() == clusterId) {
+            boolean added = peers.add(peer);
+            long peerId = peer.getID();
+            long selfDistance = selfId ^ peerId;
+
+            // Remove any remote peers that are farther from the new peer than this node is
+            peers.removeIf(other -> owner.protocolOf(other).getClusterId() != clusterId
+                    && (other.getID() ^ peerId) > selfDistance);
+            return added;
+        }
+
+        Node closestInCluster = owner.getClusterIndex().closest(clusterId, peer.getID());
+        if (closestInCluster != null && closestInCluster.getID() == selfId) {
+            // Become gateway peer
+            return peers.add(peer);
+        }
+        return false;
+    }
+
+    public boolean remove(Node peer) {
+        return peers.remove(peer);
+    }
+
+    public boolean contains(Node peer) {
+        return peers.contains(peer);
+    }
+
+    public int size() {
+        return peers.size();
+    }
+
+    public int closest(long targetId, int count, int[] outIndex, long[] outDistance) {
+        return peers.closest(targetId, count, outIndex, outDistance);
+    }
+}
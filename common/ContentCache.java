@@ -0,0 +1,37 @@
+// Per-node content cache. Only which content IDs are held is tracked, not the content
+// itself; implementations differ in what they evict when full. Entries may carry an expiry
+// time (simulation time, see CommonState); expired entries count as absent.
+import java.util.function.LongConsumer;
+
+public interface ContentCache {
+    // Returns true on a hit and records the access with the eviction policy
+    boolean get(long contentId);
+
+    // Checks for content without counting as an access
+    boolean contains(long contentId);
+
+    // Like contains, but leaves an expired entry in place, so any number of threads may peek
+    // while nothing writes to the cache
+    boolean peek(long contentId);
+
+    // Caches content with no expiry
+    void put(long contentId);
+
+    // Caches content until expiresAt; content already held keeps the later expiry
+    void put(long contentId, long expiresAt);
+
+    // Passes every unexpired content ID to action, without counting as accesses
+    void forEach(LongConsumer action);
+
+    int size();
+
+    // Entries added since creation, and entries removed without being asked to: pushed out
+    // for capacity, refused admission, or expired
+    long insertions();
+
+    long evictions();
+
+    int capacity();
+
+    void clear();
+}
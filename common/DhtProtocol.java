@@ -0,0 +1,758 @@
+// State shared by every protocol variant: the node's identity, cluster, local store and
+// message counters. STORE and LOOKUP routing runs in RoutingEngine (cycle-driven, one call
+// per operation) or as AsyncOperations over a Transport (event-driven); a variant only
+// picks its strategies: the peer table (KBucket insertion policy), the content cache and
+// the peer scorer.
+import peersim.core.*;
+import peersim.config.*;
+import peersim.edsim.*;
+import peersim.transport.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+public abstract class DhtProtocol implements EDProtocol {
+    private static final int DEFAULT_CACHE_SIZE = 500;
+    private static final String PAR_CACHE_SIZE = "cache_size";
+    private static final String PAR_CACHE_POLICY = "cache_policy";
+    private static final String PAR_LFU_AGING = "lfu_aging";
+    private static final String PAR_CACHE_WINDOW = "cache_window";
+    private static final long DEFAULT_PATH_CACHE_TTL = 10000;
+    private static final String PAR_PATH_CACHE_TTL = "path_cache_ttl";
+    private static final String PAR_CLUSTER_CACHE = "cluster_cache";
+    private static final String PAR_SUMMARY_PERIOD = "summary_period";
+    private static final String PAR_SUMMARY_BITS = "summary_bits";
+    private static final int DEFAULT_STORE_CAPACITY = 64;
+    private static final String PAR_STORE_CAPACITY = "store_capacity";
+    private static final String PAR_LATENCY = "latency";
+    private static final String PAR_RPC_TIMEOUT = "rpc_timeout";
+
+    // One latency model per configured protocol, shared by all of its nodes
+    private static final Map<String, LatencyModel> latencyModels = new HashMap<>();
+
+    protected final String prefix;
+    protected final int pid;
+    protected final int kadK;
+    protected final int kadA;
+    protected final int cacheSize;
+    protected final long pathCacheTtl;
+    protected final boolean clusterCache;
+    protected final long summaryPeriod;
+    protected final int summaryBits;
+    // Event-driven: how long an RPC waits for its reply before the peer counts as dead;
+    // 0 (the default) waits forever, as every node answers unless there is churn
+    protected final long rpcTimeout;
+
+    private Node selfNode;
+    private int clusterID;
+    private ClusterIndex clusterIndex;
+    private int transportPid = -1;
+    private PeerTable kbucket;
+    private final ContentCache contentCache;
+    private final PeerScorer scorer;
+    private final LatencyModel latencyModel;
+
+    // Replicas held by this node; store_capacity is the expected count per node (roughly
+    // stores * kadK / network size) so the table does not have to grow during the run
+    private final LongHashSet localStore;
+
+    // Event-driven operations this node started and that are still waiting for replies
+    private final Map<Long, AsyncOperation> operations = new HashMap<>();
+
+    // Map to track content to its originating cluster
+    private final Map<String, Integer> contentOriginCluster = new HashMap<>();
+
+    // Cache instrumentation: our own lookups served (or not) by our cache, and FIND_VALUEs
+    // from other nodes answered from it
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+    private long cacheRemoteHits = 0;
+
+    // Content summary as last published to the cluster, and its accuracy as seen by our lookups
+    private BloomFilter summary;
+    private long summaryMessages = 0;
+    private long summaryFalsePositives = 0;
+    private long summaryTrueNegatives = 0;
+
+    private int intraClusterStore = 0;
+    private int interClusterStore = 0;
+    private int intraClusterLookup = 0;
+    private int interClusterLookup = 0;
+    private int intraClusterJoin = 0;
+    private int interClusterJoin = 0;
+    // Contacts dropped from our table because they did not answer
+    private long deadContacts = 0;
+
+    protected DhtProtocol(String prefix) {
+        this.prefix = prefix;
+        // Resolved once here rather than on every call, e.g. "protocol.hkademlia" -> pid of "hkademlia"
+        this.pid = Configuration.lookupPid(prefix.substring(prefix.lastIndexOf('.') + 1));
+        this.kadK = Configuration.getInt(prefix + ".kadK");
+        this.kadA = Configuration.getInt(prefix + ".kadA");
+        this.cacheSize = Configuration.getInt(prefix + "." + PAR_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        this.pathCacheTtl = Configuration.getLong(prefix + "." + PAR_PATH_CACHE_TTL, DEFAULT_PATH_CACHE_TTL);
+        this.clusterCache = Configuration.getBoolean(prefix + "." + PAR_CLUSTER_CACHE, true);
+        this.summaryPeriod = Configuration.getLong(prefix + "." + PAR_SUMMARY_PERIOD, 0);
+        this.summaryBits = Configuration.getInt(prefix + "." + PAR_SUMMARY_BITS, 10);
+        this.rpcTimeout = Configuration.getLong(prefix + "." + PAR_RPC_TIMEOUT, 0);
+        this.localStore = new LongHashSet(Configuration.getInt(prefix + "." + PAR_STORE_CAPACITY, DEFAULT_STORE_CAPACITY));
+        this.contentCache = createCache(cacheSize);
+        this.scorer = createScorer();
+        this.latencyModel = latencyModels.computeIfAbsent(prefix, p -> Configuration.contains(p + "." + PAR_LATENCY)
+                ? (LatencyModel) Configuration.getInstance(p + "." + PAR_LATENCY)
+                : new ClusterLatencyModel(p + "." + PAR_LATENCY));
+    }
+
+    // The clone() method ensures that each peer gets a new instance of your protocol class
+    public abstract Object clone();
+
+    // Strategy: the routing table for a node, which decides which offered peers are kept
+    protected abstract PeerTable createPeerTable(Node self);
+
+    // Strategy: the content cache, or null for variants without caching
+    protected ContentCache createCache(int capacity) {
+        return null;
+    }
+
+    // The cache named by cache_policy, for variants that cache: fifo (default), lru, lfu (with
+    // lfu_aging: halve the counts every that many accesses, 0 = never) or wtinylfu (with
+    // cache_window: the share of the capacity used as admission window, default 0.01)
+    protected ContentCache configuredCache(int capacity) {
+        String policy = Configuration.getString(prefix + "." + PAR_CACHE_POLICY, "fifo");
+        switch (policy) {
+            case "fifo":
+                return new FifoCache(capacity);
+            case "lru":
+                return new LruCache(capacity);
+            case "lfu":
+                return new LfuCache(capacity, Configuration.getInt(prefix + "." + PAR_LFU_AGING, 0));
+            case "wtinylfu":
+                return new WTinyLfuCache(capacity, Configuration.getDouble(prefix + "." + PAR_CACHE_WINDOW, 0.01));
+            default:
+                throw new IllegalParameterException(prefix + "." + PAR_CACHE_POLICY,
+                        "expected fifo, lru, lfu or wtinylfu, got " + policy);
+        }
+    }
+
+    // Strategy: how lookup candidates are ranked against the target
+    protected PeerScorer createScorer() {
+        return PeerScorer.XOR;
+    }
+
+    // Whether peers discovered while routing a STORE are offered to our own table
+    protected boolean learnsPeersOnStore() {
+        return true;
+    }
+
+    // Binds this protocol instance to the node that owns it and builds its routing table
+    public void setSelfNode(Node node) {
+        this.selfNode = node;
+        this.kbucket = createPeerTable(node);
+    }
+
+    public Node getSelfNode() {
+        return selfNode;
+    }
+
+    public void addPeer(Node peer) {
+        kbucket.add(peer);
+    }
+
+    public void removePeer(Node peer) {
+        kbucket.remove(peer);
+    }
+
+    // Drops a contact that did not answer an RPC; the table may refill its slot. A dead one
+    // also leaves its cluster's index, which keeps crashed members until an RPC times out.
+    void evictDead(Node peer) {
+        if (kbucket.remove(peer)) {
+            deadContacts++;
+        }
+        if (clusterIndex != null && !peer.isUp()) {
+            clusterIndex.remove(protocolOf(peer).getClusterId(), peer);
+        }
+    }
+
+    // Graceful departure (see Churn): every peer in our table forgets us, and each replica
+    // we hold goes to the live peer closest to its key that lacks it. Returns the number of
+    // replicas handed over.
+    public int leave() {
+        RoutingEngine engine = RoutingEngine.get();
+        for (Node peer : engine.closestNodes(this, selfNode.getID(), kbucket.size())) {
+            protocolOf(peer).removePeer(selfNode);
+        }
+        int[] handedOver = { 0 };
+        localStore.forEach(key -> {
+            for (Node peer : engine.closestNodes(this, key, kadK)) {
+                DhtProtocol proto = protocolOf(peer);
+                if (peer.isUp() && !proto.localStore.contains(key)) {
+                    proto.storeReplica(key);
+                    handedOver[0]++;
+                    return;
+                }
+            }
+        });
+        return handedOver[0];
+    }
+
+    public StoreResult executeStore(long contentId) {
+        localStore.add(contentId);
+        if (contentCache != null) {
+            contentCache.put(contentId);
+        }
+        return RoutingEngine.get().store(this, contentId);
+    }
+
+    public LookupResult executeLookup(long contentId) {
+        // The walk draws its latencies from a stream split off for this lookup, as
+        // LookupBatch.add does, so a lookup costs the same in or out of a batch
+        SplittableRandom stream = SimRandom.current().split();
+        // first check local cache
+        if (contentCache != null) {
+            if (searchCache(contentId)) {
+                // Cache hit - return result immediately with 0 hops
+                return new LookupResult(true, 0, 0, 0, 0);
+            }
+        }
+        // Next check local store
+        if (localStore.contains(contentId)) {
+            return new LookupResult(true, 0, 0, 0, 1);
+        }
+        SplittableRandom caller = SimRandom.swap(stream);
+        LookupResult result = RoutingEngine.get().lookup(this, contentId);
+        SimRandom.swap(caller);
+        return result;
+    }
+
+    // executeLookup for LookupBatch: only reads state, so it may run on several threads at
+    // once while nothing else runs; what it would have changed is left in fx for applyLookup
+    LookupResult frozenLookup(long contentId, LookupEffects fx) {
+        fx.reset();
+        if (contentCache != null) {
+            fx.cacheAccessed = true;
+            if (contentCache.peek(contentId)) {
+                fx.cacheHit = true;
+                return new LookupResult(true, 0, 0, 0, 0);
+            }
+        }
+        if (localStore.contains(contentId)) {
+            return new LookupResult(true, 0, 0, 0, 1);
+        }
+        return RoutingEngine.get().lookup(this, contentId, fx);
+    }
+
+    // Replays the effects of a frozenLookup, in the order executeLookup would have had them
+    void applyLookup(long contentId, LookupResult result, LookupEffects fx) {
+        if (fx.cacheAccessed) {
+            contentCache.get(contentId);
+            if (fx.cacheHit) {
+                cacheHits++;
+            } else {
+                cacheMisses++;
+            }
+        }
+        summaryFalsePositives += fx.summaryFalsePositives;
+        summaryTrueNegatives += fx.summaryTrueNegatives;
+        if (fx.remoteHit != null) {
+            protocolOf(fx.remoteHit).cacheRemoteHits++;
+        }
+        for (Node peer : fx.cacheMisses) {
+            protocolOf(peer).contentCache.contains(contentId);
+        }
+        if (fx.clusterCopy != null) {
+            protocolOf(fx.clusterCopy).storeClusterCopy(contentId);
+        }
+        if (fx.pathCopy != null) {
+            protocolOf(fx.pathCopy).cachePathCopy(contentId, fx.holder);
+        }
+        for (Node dead : fx.deadContacts) {
+            evictDead(dead);
+        }
+        if (fx.walked) {
+            recordLookup(result.lookupIntraMessages, result.lookupInterMessages);
+        }
+    }
+
+    // Event-driven STORE: returns immediately, done is called once every replica is acknowledged
+    public void startStore(long contentId, Consumer<StoreResult> done) {
+        localStore.add(contentId);
+        if (contentCache != null) {
+            contentCache.put(contentId);
+        }
+        start(AsyncOperation.store(this, contentId, done));
+    }
+
+    // Event-driven LOOKUP: local hits complete at once, otherwise done is called when the walk ends
+    public void startLookup(long contentId, Consumer<LookupResult> done) {
+        if (contentCache != null) {
+            if (searchCache(contentId)) {
+                done.accept(new LookupResult(true, 0, 0, 0, 0));
+                return;
+            }
+        }
+        if (localStore.contains(contentId)) {
+            done.accept(new LookupResult(true, 0, 0, 0, 1));
+            return;
+        }
+        start(AsyncOperation.lookup(this, contentId, done));
+    }
+
+    private void start(AsyncOperation op) {
+        operations.put(op.id, op);
+        op.start(RoutingEngine.get().closestNodes(this, op.key(), kadK));
+    }
+
+    public int pendingOperations() {
+        return operations.size();
+    }
+
+    // Answers RPCs from other nodes and feeds replies to the operation they belong to
+    public void processEvent(Node node, int pid, Object event) {
+        KademliaMessage msg = (KademliaMessage) event;
+        if (msg.type == KademliaMessage.TIMEOUT) {
+            AsyncOperation op = operations.get(msg.operationId);
+            if (op != null) {
+                op.onTimeout(msg.rpc);
+            }
+            return;
+        }
+        if (msg.isReply()) {
+            AsyncOperation op = operations.get(msg.operationId);
+            if (op != null) {
+                op.onReply(msg);
+            }
+            return;
+        }
+
+        KademliaMessage reply;
+        switch (msg.type) {
+            case KademliaMessage.FIND_VALUE:
+            case KademliaMessage.FIND_NODE:
+                // A FIND_VALUE we cannot answer gets our closest peers, as a FIND_NODE does
+                if (msg.type == KademliaMessage.FIND_VALUE && answersFindValue(msg.key)) {
+                    reply = new KademliaMessage(KademliaMessage.VALUE, msg.operationId, msg.rpc, selfNode, msg.key, null);
+                } else {
+                    Node[] closest = RoutingEngine.get().closestNodes(this, msg.key, kadK);
+                    reply = new KademliaMessage(KademliaMessage.NODES, msg.operationId, msg.rpc, selfNode, msg.key, closest);
+                }
+                break;
+            case KademliaMessage.STORE:
+                storeReplica(msg.key);
+                reply = new KademliaMessage(KademliaMessage.STORE_OK, msg.operationId, msg.rpc, selfNode, msg.key, null);
+                break;
+            case KademliaMessage.CACHE:
+                cachePathCopy(msg.key, msg.nodes[0]);
+                return;
+            case KademliaMessage.CLUSTER_CACHE:
+                storeClusterCopy(msg.key);
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown message type " + msg.type);
+        }
+        send(msg.sender, reply);
+    }
+
+    void send(Node dest, KademliaMessage msg) {
+        if (transportPid < 0) {
+            transportPid = FastConfig.getTransport(pid);
+        }
+        ((Transport) selfNode.getProtocol(transportPid)).send(selfNode, dest, msg, pid);
+    }
+
+    // Schedules the TIMEOUT of RPC rpc to peer, when rpc_timeout is set
+    void awaitReply(AsyncOperation op, int rpc, Node peer) {
+        if (rpcTimeout > 0) {
+            EDSimulator.add(rpcTimeout, new KademliaMessage(KademliaMessage.TIMEOUT, op.id, rpc, peer, op.key(), null),
+                    selfNode, pid);
+        }
+    }
+
+    void operationDone(AsyncOperation op) {
+        operations.remove(op.id);
+    }
+
+    public void setClusterIndex(ClusterIndex index) {
+        this.clusterIndex = index;
+    }
+
+    public ClusterIndex getClusterIndex() {
+        return clusterIndex;
+    }
+
+    // Moves this node into cluster id, keeping the shared cluster index (if any) current
+    public void setClusterId(int id) {
+        if (clusterIndex != null) {
+            clusterIndex.remove(this.clusterID, selfNode);
+            clusterIndex.add(id, selfNode);
+        }
+        this.clusterID = id;
+    }
+
+    // Adds this node to its cluster's index once it joins the network, for a node whose
+    // cluster was set before the index (see JoinBootstrap)
+    public void joinCluster() {
+        if (clusterIndex != null) {
+            clusterIndex.add(this.clusterID, selfNode);
+        }
+    }
+
+    // Removes this node from its cluster's index, e.g. when it leaves the network
+    public void leaveCluster() {
+        if (clusterIndex != null) {
+            clusterIndex.remove(this.clusterID, selfNode);
+        }
+    }
+
+    public int getClusterId() {
+        return clusterID;
+    }
+
+    // Returns this protocol's state on another node
+    DhtProtocol protocolOf(Node node) {
+        return (DhtProtocol) node.getProtocol(pid);
+    }
+
+    // Writes up to count peers closest to targetId into the caller's buffers (network
+    // indices and XOR distances, nearest first) and returns how many were written
+    int findClosestPeers(long targetId, int count, int[] outIndex, long[] outDistance) {
+        return kbucket.closest(targetId, count, outIndex, outDistance);
+    }
+
+    // True if this node can answer a FIND_VALUE for contentId from its store or cache. Only
+    // reads: an expired entry counts as absent but stays in place (see ContentCache.peek), so
+    // any number of threads may ask.
+    boolean holdsContent(long contentId) {
+        return localStore.contains(contentId) || (contentCache != null && contentCache.peek(contentId));
+    }
+
+    // Answers a FIND_VALUE from another node: holdsContent, counting answers from the cache
+    boolean answersFindValue(long contentId) {
+        if (localStore.contains(contentId)) return true;
+        if (contentCache != null && contentCache.contains(contentId)) {
+            cacheRemoteHits++;
+            return true;
+        }
+        return false;
+    }
+
+    // As above, or with fx set only reading our state and leaving the remote hit, or the
+    // miss that may expire an entry, in fx
+    boolean answersFindValue(long contentId, LookupEffects fx) {
+        if (fx == null) return answersFindValue(contentId);
+        if (localStore.contains(contentId)) return true;
+        if (contentCache != null) {
+            if (contentCache.peek(contentId)) {
+                fx.remoteHit = selfNode;
+                return true;
+            }
+            fx.cacheMisses.add(selfNode);
+        }
+        return false;
+    }
+
+    // Receives a replica pushed by a STORE
+    void storeReplica(long contentId) {
+        localStore.add(contentId);
+    }
+
+    public int replicaCount() {
+        return localStore.size();
+    }
+
+    public void forEachReplica(LongConsumer action) {
+        localStore.forEach(action);
+    }
+
+    // Whether lookups passing through this node should leave a copy of their value here
+    boolean cachesPathCopies() {
+        return contentCache != null && pathCacheTtl > 0;
+    }
+
+    // Caches a value a lookup found at holder after passing us. The copy lives path_cache_ttl,
+    // halved for every bit our XOR distance to the key exceeds the holder's, so copies far
+    // from the key, which fewer later lookups will pass, expire sooner.
+    void cachePathCopy(long contentId, Node holder) {
+        if (!cachesPathCopies()) return;
+        int excess = bitLength(selfNode.getID() ^ contentId) - bitLength(holder.getID() ^ contentId);
+        long ttl = pathCacheTtl >> Math.min(Math.max(excess, 0), 63);
+        if (ttl > 0) {
+            contentCache.put(contentId, CommonState.getTime() + ttl);
+        }
+    }
+
+    // Cluster-cooperative cache: every key has a home among the members of each cluster, the
+    // member XOR-closest to a hash of the key (see ClusterIndex), whose cache holds the
+    // cluster's copy. A lookup asks its home before walking out of the cluster and leaves the
+    // value there afterwards, so the members' caches act as one cache partitioned by key.
+    // Returns null when this protocol has no cache or no clusters, or cluster_cache is off.
+    Node clusterCacheHome(long contentId) {
+        if (!clusterCache || contentCache == null || clusterIndex == null) return null;
+        long h = contentId * 0x9E3779B97F4A7C15L;
+        return clusterIndex.closest(clusterID, h ^ (h >>> 31));
+    }
+
+    // Cluster members to ask for contentId before walking, written to out: members whose
+    // published summary matches (at most out.length - 1), then the cluster cache home if it
+    // is not among them. Never includes this node, which has already checked itself.
+    // The summaries' false-positive rate is sampled on one member picked at random per
+    // lookup; with fx set the counts go to fx, and our own counters are left alone.
+    int directoryProbes(long contentId, Node home, Node[] out, LookupEffects fx) {
+        int count = 0;
+        if (summaryPeriod > 0 && clusterIndex != null) {
+            SummaryIndex summaries = clusterIndex.summaries(summaryPeriod, summaryBits, pid);
+            count = summaries.matches(clusterID, contentId, CommonState.getTime(), selfNode, out, out.length - 1);
+            int members = clusterIndex.size(clusterID);
+            Node sampled = members > 0 ? clusterIndex.member(clusterID, SimRandom.current().nextInt(members)) : null;
+            // Ground truth, only to measure the false-positive rate
+            if (sampled != null && sampled != selfNode && sampled.isUp() && !protocolOf(sampled).holdsContent(contentId)) {
+                boolean match = summaries.mightContain(clusterID, sampled, contentId);
+                if (fx != null) {
+                    if (match) {
+                        fx.summaryFalsePositives++;
+                    } else {
+                        fx.summaryTrueNegatives++;
+                    }
+                } else if (match) {
+                    summaryFalsePositives++;
+                } else {
+                    summaryTrueNegatives++;
+                }
+            }
+        }
+        if (home != null && home != selfNode) {
+            for (int i = 0; i < count; i++) {
+                if (out[i] == home) return count;
+            }
+            out[count++] = home;
+        }
+        return count;
+    }
+
+    // Publishes a Bloom filter of our store and cache to the other members of the cluster,
+    // when the cluster's SummaryIndex finds it due. Every period the publish covers costs one
+    // message per receiver, though only the latest filter is built.
+    BloomFilter publishSummary(long periods, int receivers) {
+        BloomFilter filter = new BloomFilter(localStore.size() + (contentCache != null ? contentCache.size() : 0), summaryBits);
+        localStore.forEach(filter::add);
+        if (contentCache != null) {
+            contentCache.forEach(filter::add);
+        }
+        summary = filter;
+        summaryMessages += periods * Math.max(0, receivers);
+        return filter;
+    }
+
+    // Keeps the cluster's copy of a value this node is the cluster cache home for
+    void storeClusterCopy(long contentId) {
+        if (contentCache != null) {
+            contentCache.put(contentId);
+        }
+    }
+
+    private static int bitLength(long distance) {
+        return 64 - Long.numberOfLeadingZeros(distance);
+    }
+
+    void recordStore(int intraMessages, int interMessages) {
+        this.intraClusterStore += intraMessages;
+        this.interClusterStore += interMessages;
+    }
+
+    void recordLookup(int intraMessages, int interMessages) {
+        this.intraClusterLookup += intraMessages;
+        this.interClusterLookup += interMessages;
+    }
+
+    void recordJoin(int intraMessages, int interMessages) {
+        this.intraClusterJoin += intraMessages;
+        this.interClusterJoin += interMessages;
+    }
+
+    long getRpcTimeout() {
+        return rpcTimeout;
+    }
+
+    PeerScorer getScorer() {
+        return scorer;
+    }
+
+    long calculateLatency(Node from, Node to) {
+        return latencyModel.latency(protocolOf(from), protocolOf(to));
+    }
+
+    // Cluster suggested by the latency model's topology for this node, or -1 if it has none
+    public int topologyCluster(int numClusters) {
+        return latencyModel.clusterOf(selfNode, numClusters);
+    }
+
+    // Register which cluster a content originated from
+    public void registerContentOrigin(String contentId, int clusterId) {
+        contentOriginCluster.put(contentId, clusterId);
+    }
+
+    // Get the origin cluster of a content
+    public Integer getContentOriginCluster(String contentId) {
+        return contentOriginCluster.get(contentId);
+    }
+
+    // store content in cache
+    public void storeInCache(long contentId) {
+        if (contentCache != null) {
+            contentCache.put(contentId);
+        }
+    }
+
+    // Search for content in local cache
+    public boolean searchCache(long contentId) {
+        if (contentCache == null) return false;
+        boolean hit = contentCache.get(contentId);
+
+        // Update stats (optional)
+        if (hit) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+        return hit;
+    }
+
+    //Check if content exists in cache
+    public boolean isCached(long contentId) {
+        return contentCache != null && contentCache.contains(contentId);
+    }
+
+    /**
+     * Clear the entire cache
+     */
+    public void clearCache() {
+        if (contentCache != null) {
+            contentCache.clear();
+        }
+    }
+
+    /**
+     * Get cache statistics
+     * @return String representation of cache stats
+     */
+    public String getCacheStats() {
+        long totalRequests = cacheHits + cacheMisses;
+        double hitRatio = totalRequests > 0 ? (double) cacheHits / totalRequests : 0;
+
+        return String.format("Cache size: %d/%d, Hits: %d, Misses: %d, Hit ratio: %.2f%%, Remote hits: %d, Insertions: %d, Evictions: %d",
+                getCacheSize(), cacheSize, cacheHits, cacheMisses, hitRatio * 100,
+                cacheRemoteHits, getCacheInsertions(), getCacheEvictions());
+    }
+
+    public boolean hasCache() {
+        return contentCache != null;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getCacheRemoteHits() {
+        return cacheRemoteHits;
+    }
+
+    public long getCacheInsertions() {
+        return contentCache != null ? contentCache.insertions() : 0;
+    }
+
+    public long getCacheEvictions() {
+        return contentCache != null ? contentCache.evictions() : 0;
+    }
+
+    public int getCacheSize() {
+        return contentCache != null ? contentCache.size() : 0;
+    }
+
+    public int getCacheCapacity() {
+        return contentCache != null ? contentCache.capacity() : 0;
+    }
+
+    public int getKBucketSize() {
+        return kbucket.size();
+    }
+
+    public int getKadK() {
+        // Return the configured k-bucket size
+        return this.kadK;
+    }
+
+    public int getKadA() {
+        return this.kadA;
+    }
+
+    // Network-wide content summary metrics for the given protocol, or null if it publishes none
+    public static String summaryStats(int protocolID) {
+        publishSummaries(protocolID);
+        long bytes = 0, messages = 0, falsePositives = 0, trueNegatives = 0;
+        int publishers = 0;
+        for (int i = 0; i < Network.size(); i++) {
+            DhtProtocol p = (DhtProtocol) Network.get(i).getProtocol(protocolID);
+            if (p.summary == null) continue;
+            publishers++;
+            bytes += p.getSummaryBytes();
+            messages += p.summaryMessages;
+            falsePositives += p.summaryFalsePositives;
+            trueNegatives += p.summaryTrueNegatives;
+        }
+        if (publishers == 0) return null;
+        long negatives = falsePositives + trueNegatives;
+        return String.format(Locale.ROOT, "Content summaries: %d bytes (%.1f per node), %d publish messages, false-positive rate %.4f",
+                bytes, (double) bytes / publishers, messages, negatives > 0 ? (double) falsePositives / negatives : 0);
+    }
+
+    // Carries out the summary publishes due by now, so that the message counts cover the
+    // whole run however often lookups read the summaries
+    public static void publishSummaries(int protocolID) {
+        if (Network.size() == 0) return;
+        ClusterIndex index = ((DhtProtocol) Network.get(0).getProtocol(protocolID)).clusterIndex;
+        if (index != null && index.summaries() != null) {
+            index.summaries().refresh(CommonState.getTime());
+        }
+    }
+
+    public long getSummaryBytes() {
+        return summary != null ? summary.sizeInBytes() : 0;
+    }
+
+    public long getSummaryMessages() {
+        return summaryMessages;
+    }
+
+    public long getSummaryFalsePositives() {
+        return summaryFalsePositives;
+    }
+
+    public long getSummaryTrueNegatives() {
+        return summaryTrueNegatives;
+    }
+
+    public int getIntraClusterStore() {
+        return intraClusterStore;
+    }
+    public int getInterClusterStore() {
+        return interClusterStore;
+    }
+    public int getIntraClusterLookup() {
+        return intraClusterLookup;
+    }
+    public int getInterClusterLookup() {
+        return interClusterLookup;
+    }
+    public int getIntraClusterJoin() {
+        return intraClusterJoin;
+    }
+    public int getInterClusterJoin() {
+        return interClusterJoin;
+    }
+    public long getDeadContacts() {
+        return deadContacts;
+    }
+}
@@ -0,0 +1,209 @@
+// Event-driven STORE/LOOKUP traffic. Every step it starts `requests` requests drawn from a
+// Workload (same parameters as the cycle-driven simulator) without waiting for earlier ones
+// to finish, so operations overlap in simulated time. Completions are tallied per step, with
+// hop, latency and message percentiles in `percentile_file` and, when nodes cache content,
+// cache hits, evictions and occupancy in `cache_file`; declare the control FINAL as well and
+// the run after the simulation writes the CSVs and prints the summary. As in the
+// cycle-driven simulator, files go to `output_dir` and `summary_file` gets the headline numbers.
+import peersim.config.*;
+import peersim.core.*;
+import java.util.*;
+import java.io.*;
+
+public class EDStoreLookupTraffic implements Control {
+    private final int protocolID;
+    private final int requests;
+    private final String metricsFile;
+    private final String percentileFile;
+    private final String cacheFile;
+    private final String summaryFile;
+    private final Workload workload;
+
+    private int started = 0;
+    private int completed = 0;
+    private long lastTime = 0;
+
+    // Per-step metrics
+    private int tickStores = 0;
+    private long tickStoreLatency = 0;
+    private int tickLookups = 0;
+    private int tickSuccessfulLookups = 0;
+    private long tickLookupLatency = 0;
+    private int tickLookupHops = 0;
+
+    private final List<String> rows = new ArrayList<>();
+
+    private final OperationHistograms storeHistograms = new OperationHistograms("STORE");
+    private final OperationHistograms lookupHistograms = new OperationHistograms("LOOKUP");
+    private final List<String> percentileRows = new ArrayList<>();
+    private final CacheMetrics cacheMetrics;
+
+    // Totals
+    private int totalStores = 0;
+    private int totalLookups = 0;
+    private int successfulLookups = 0;
+    private long totalLookupLatency = 0;
+    private long totalStoreLatency = 0;
+
+    public EDStoreLookupTraffic(String prefix) {
+        this.protocolID = Configuration.getPid(prefix + ".protocol");
+        this.requests = Configuration.getInt(prefix + ".requests", 100);
+        this.workload = new Workload(prefix, 8, SimRandom.split());
+        String outputDir = Configuration.getString(prefix + ".output_dir", "");
+        String metrics = Configuration.getString(prefix + ".file", "ed_metrics_hkademlia.csv");
+        this.metricsFile = StoreLookupSimulator.outputFile(outputDir, metrics);
+        this.percentileFile = StoreLookupSimulator.outputFile(outputDir, Configuration.getString(prefix + ".percentile_file",
+                metrics.replace("metrics", "percentile_metrics")));
+        this.cacheFile = StoreLookupSimulator.outputFile(outputDir, Configuration.getString(prefix + ".cache_file",
+                metrics.replace("metrics", "cache_metrics")));
+        String summary = Configuration.getString(prefix + ".summary_file", null);
+        this.summaryFile = summary != null ? StoreLookupSimulator.outputFile(outputDir, summary) : null;
+        this.cacheMetrics = new CacheMetrics(protocolID);
+    }
+
+    @Override
+    public boolean execute() {
+        closeTick();
+        if (CommonState.getPhase() == CommonState.POST_SIMULATION) {
+            workload.close();
+            writeMetricsToCSV();
+            printSummary();
+            return false;
+        }
+
+        for (int i = 0; i < requests && workload.next(); i++) {
+            DhtProtocol protocol = (DhtProtocol) Network.get(workload.initiator).getProtocol(protocolID);
+            int cluster = protocol.getClusterId();
+
+            long contentKey = workload.storeKey;
+            if (contentKey != Workload.NONE) {
+                started++;
+                // Lookups only target keys whose STORE has completed
+                protocol.startStore(contentKey, result -> storeDone(contentKey, cluster, result));
+            }
+            if (workload.lookup) {
+                long key = workload.lookupKey(cluster);
+                if (key != Workload.NONE) {
+                    started++;
+                    protocol.startLookup(key, this::lookupDone);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void storeDone(long contentKey, int cluster, StoreResult result) {
+        completed++;
+        workload.stored(contentKey, cluster);
+        tickStores++;
+        tickStoreLatency += result.latency;
+        totalStores++;
+        totalStoreLatency += result.latency;
+        storeHistograms.record(result.hops, result.latency, result.localIntraMessages + result.localInterMessages);
+    }
+
+    private void lookupDone(LookupResult result) {
+        completed++;
+        tickLookups++;
+        totalLookups++;
+        if (result.success) {
+            tickSuccessfulLookups++;
+            tickLookupLatency += result.latency;
+            tickLookupHops += result.hops;
+            successfulLookups++;
+            totalLookupLatency += result.latency;
+            lookupHistograms.record(result.hops, result.latency, result.lookupIntraMessages + result.lookupInterMessages);
+        }
+    }
+
+    // Records the step that just ended; throughput is completed operations per simulated second (ms time units)
+    private void closeTick() {
+        long now = CommonState.getTime();
+        long elapsed = now - lastTime;
+        if (elapsed <= 0) return;
+
+        int tick = rows.size() + 1;
+        double throughput = (tickStores + tickLookups) * 1000.0 / elapsed;
+        rows.add(String.format(Locale.ROOT, "%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%d",
+                tick, now, tickStores, tickLookups,
+                tickLookups > 0 ? (double) tickSuccessfulLookups / tickLookups : 0,
+                tickStores > 0 ? (double) tickStoreLatency / tickStores : 0,
+                tickSuccessfulLookups > 0 ? (double) tickLookupLatency / tickSuccessfulLookups : 0,
+                tickSuccessfulLookups > 0 ? (double) tickLookupHops / tickSuccessfulLookups : 0,
+                throughput, started - completed));
+        storeHistograms.closeTick(tick, percentileRows);
+        lookupHistograms.closeTick(tick, percentileRows);
+        cacheMetrics.sample(tick);
+
+        lastTime = now;
+        tickStores = 0;
+        tickStoreLatency = 0;
+        tickLookups = 0;
+        tickSuccessfulLookups = 0;
+        tickLookupLatency = 0;
+        tickLookupHops = 0;
+    }
+
+    private void writeMetricsToCSV() {
+        try (PrintWriter writer = new PrintWriter(metricsFile)) {
+            writer.println("Tick,Time,StoresDone,LookupsDone,LookupSuccessRatio,AvgStoreLatency(ms),AvgLookupLatency(ms),AvgLookupHops,Throughput(ops/s),InFlight");
+            for (String row : rows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+
+        storeHistograms.totals(percentileRows);
+        lookupHistograms.totals(percentileRows);
+        try (PrintWriter writer = new PrintWriter(percentileFile)) {
+            writer.println(OperationHistograms.CSV_HEADER);
+            for (String row : percentileRows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+        cacheMetrics.write(cacheFile);
+
+        if (summaryFile != null) {
+            RunSummary summary = new RunSummary()
+                    .add("StoreRequests", totalStores)
+                    .add("LookupRequests", totalLookups)
+                    .add("SuccessfulLookups", successfulLookups)
+                    .add("LookupSuccessRatio", totalLookups > 0 ? (double) successfulLookups / totalLookups : 0)
+                    .add("AvgStoreLatency(ms)", totalStores > 0 ? (double) totalStoreLatency / totalStores : 0)
+                    .add("AvgLookupLatency(ms)", successfulLookups > 0 ? (double) totalLookupLatency / successfulLookups : 0)
+                    .addLatency("Store", storeHistograms.totalLatency())
+                    .addLatency("Lookup", lookupHistograms.totalLatency())
+                    .add("Throughput(ops/s)", CommonState.getTime() > 0 ? completed * 1000.0 / CommonState.getTime() : 0);
+            cacheMetrics.addTotals(summary);
+            summary.write(summaryFile);
+        }
+    }
+
+    private void printSummary() {
+        System.out.println("=== Event-driven Simulation Summary ===");
+        System.out.println("Operations started: " + started + ", completed: " + completed);
+        System.out.println("Completed STOREs: " + totalStores);
+        System.out.println("Average STORE latency (ms): " +
+            (totalStores > 0 ? (double) totalStoreLatency / totalStores : "N/A"));
+        System.out.println("Completed LOOKUPs: " + totalLookups);
+        System.out.println("Successful LOOKUPs: " + successfulLookups);
+        System.out.println("Average LOOKUP latency (ms): " +
+            (successfulLookups > 0 ? (double) totalLookupLatency / successfulLookups : "N/A"));
+        LogHistogram lookupLatency = lookupHistograms.totalLatency();
+        System.out.printf("LOOKUP latency p50/p90/p99/p99.9 (ms): %d/%d/%d/%d%n", lookupLatency.percentile(50),
+            lookupLatency.percentile(90), lookupLatency.percentile(99), lookupLatency.percentile(99.9));
+        String cacheTotals = cacheMetrics.summary();
+        if (cacheTotals != null) {
+            System.out.println(cacheTotals);
+        }
+        String summaries = DhtProtocol.summaryStats(protocolID);
+        if (summaries != null) {
+            System.out.println(summaries);
+        }
+        System.out.println("Throughput (ops/s): " +
+            (CommonState.getTime() > 0 ? completed * 1000.0 / CommonState.getTime() : "N/A"));
+    }
+}
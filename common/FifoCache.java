@@ -0,0 +1,109 @@
+// First-in first-out cache: the oldest insertion is evicted, reads do not refresh entries
+import peersim.core.*;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+public class FifoCache implements ContentCache {
+    private final int capacity;
+    private final LinkedHashMap<Long, Boolean> entries;
+    // Expiry times of the entries that have one
+    private final Map<Long, Long> expiries = new HashMap<>();
+    private long insertions = 0;
+    private long evictions = 0;
+
+    public FifoCache(int capacity) {
+        this(capacity, false);
+    }
+
+    // accessOrder = true turns insertion order into recency order (see LruCache)
+    protected FifoCache(int capacity, boolean accessOrder) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, Boolean>(capacity, 0.75f, accessOrder) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                if (size() <= FifoCache.this.capacity) {
+                    return false;
+                }
+                expiries.remove(eldest.getKey());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public boolean get(long contentId) {
+        return !dropIfExpired(contentId) && entries.get(contentId) != null;
+    }
+
+    public boolean contains(long contentId) {
+        return !dropIfExpired(contentId) && entries.containsKey(contentId);
+    }
+
+    public boolean peek(long contentId) {
+        if (!entries.containsKey(contentId)) return false;
+        Long expiresAt = expiries.isEmpty() ? null : expiries.get(contentId);
+        return expiresAt == null || expiresAt > CommonState.getTime();
+    }
+
+    public void put(long contentId) {
+        dropIfExpired(contentId);
+        expiries.remove(contentId);
+        if (entries.put(contentId, Boolean.TRUE) == null) {
+            insertions++;
+        }
+    }
+
+    public void put(long contentId, long expiresAt) {
+        boolean held = !dropIfExpired(contentId) && entries.containsKey(contentId);
+        if (!held) {
+            expiries.put(contentId, expiresAt);
+        } else {
+            expiries.computeIfPresent(contentId, (k, current) -> Math.max(current, expiresAt));
+        }
+        if (entries.put(contentId, Boolean.TRUE) == null) {
+            insertions++;
+        }
+    }
+
+    public void forEach(LongConsumer action) {
+        long now = CommonState.getTime();
+        for (Long contentId : entries.keySet()) {
+            Long expiresAt = expiries.isEmpty() ? null : expiries.get(contentId);
+            if (expiresAt == null || expiresAt > now) {
+                action.accept(contentId);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long insertions() {
+        return insertions;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public void clear() {
+        entries.clear();
+        expiries.clear();
+    }
+
+    // Removes contentId if its expiry has passed; returns whether it did
+    private boolean dropIfExpired(long contentId) {
+        if (expiries.isEmpty()) return false;
+        Long expiresAt = expiries.get(contentId);
+        if (expiresAt == null || expiresAt > CommonState.getTime()) return false;
+        expiries.remove(contentId);
+        entries.remove(contentId);
+        evictions++;
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+// Count-min sketch of access frequencies with 4-bit counters, as used by TinyLFU admission:
+// four rows of `width` counters packed sixteen to a long. Counts saturate at 15 and all of
+// them are halved once 10 * width increments have been seen, so the estimate follows recent
+// popularity rather than the whole history.
+import java.util.Arrays;
+
+public class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0x97CB3127A5B8E3E5L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final long[] table;
+    private final int widthMask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    // Sized for about `capacity` distinct keys
+    public FrequencySketch(int capacity) {
+        int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.table = new long[DEPTH * width / 16];
+        this.widthMask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    public void increment(long key) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(row, key);
+            int word = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            if (((table[word] >>> shift) & 0xfL) < 15) {
+                table[word] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    // Estimated recent access count of key, at most 15
+    public int frequency(long key) {
+        int min = 15;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterOf(row, key);
+            int count = (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xfL);
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        additions = 0;
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        additions /= 2;
+    }
+
+    // Index of key's counter in the given row, counting over the whole table
+    private int counterOf(int row, long key) {
+        long h = (key + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return row * (widthMask + 1) + ((int) (h ^ (h >>> 32)) & widthMask);
+    }
+}
@@ -0,0 +1,281 @@
+// Join-based bootstrap for the initializers (bootstrap = join), in place of handing every
+// node random peers: nodes enter the network one at a time in a random order, each knowing
+// only join_contacts nodes already in, taken from its own cluster when that has members. The
+// newcomer looks up its own ID, which fills its nearest buckets and introduces it to every
+// peer it queries, then (with join_refresh) refreshes each farther bucket with a lookup of a
+// random ID in that bucket's range, as a Kademlia node does when it joins.
+// join_batch > 1 admits that many nodes per step: their walks run in parallel on the network
+// as it stood before the step, and the peers they queried learn them only once the step is
+// over, so members of a step never find one another. Each node's own generator decides its
+// contacts and refresh targets, so results do not depend on the number of threads.
+// The cost of joining (lookups, rounds, messages) is written to join_file (in output_dir)
+// per join_window nodes, and summed up on the console. Nodes arriving later in the run (see Churn) join the
+// same way through joinLive, with live nodes drawn at random as contacts.
+import peersim.config.*;
+import peersim.core.*;
+import java.io.*;
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class JoinBootstrap {
+    public static final String CSV_HEADER =
+            "Joined,Lookups,Rounds,Messages,IntraMessages,InterMessages,MessagesP50,MessagesP99,PeersPerNode";
+
+    private static final long SALT = 0x4A4F494EL; // "JOIN"
+    // Random draws joinLive spends looking for contacts in the node's own cluster, and then
+    // for any live node
+    private static final int CONTACT_TRIES = 32;
+
+    private final int contacts;
+    private final int batch;
+    private final boolean refresh;
+    private final int window;
+    private final String file;
+    // Bits of the largest node ID, which bound the buckets a join refreshes; 0 until run or
+    // the first joinLive sets it
+    private int idBits = 0;
+
+    // What one node spent on joining
+    private static class Cost {
+        int lookups;
+        int rounds;
+        int intraMessages;
+        int interMessages;
+        final List<Node> queried = new ArrayList<>();
+    }
+
+    public JoinBootstrap(String prefix) {
+        this.contacts = Math.max(1, Configuration.getInt(prefix + ".join_contacts", 1));
+        this.batch = Math.max(1, Configuration.getInt(prefix + ".join_batch", 1));
+        this.refresh = Configuration.getBoolean(prefix + ".join_refresh", true);
+        this.window = Math.max(1, Configuration.getInt(prefix + ".join_window", 1000));
+        this.file = StoreLookupSimulator.outputFile(Configuration.getString(prefix + ".output_dir", ""),
+                Configuration.getString(prefix + ".join_file", "join_metrics.csv"));
+    }
+
+    // True if the initializer at prefix asks for bootstrap = join rather than random peers
+    public static boolean configured(String prefix) {
+        String mode = Configuration.getString(prefix + ".bootstrap", "random");
+        if (!mode.equals("random") && !mode.equals("join")) {
+            throw new IllegalParameterException(prefix + ".bootstrap", "expected random or join, got " + mode);
+        }
+        return mode.equals("join");
+    }
+
+    // Joins every node of the network. Cluster IDs must be set; a node enters its cluster's
+    // index (if any) only when it joins.
+    public void run(int pid) {
+        int n = Network.size();
+        long seed = CommonState.r.getLastSeed();
+        int[] order = joinOrder(n, seed);
+
+        // Per cluster, its nodes in join order; the first clusterJoined[c] of them are in
+        int clusters = 0;
+        long maxId = 0;
+        for (int i = 0; i < n; i++) {
+            clusters = Math.max(clusters, protocol(i, pid).getClusterId() + 1);
+            maxId = Math.max(maxId, Network.get(i).getID());
+        }
+        int[][] clusterOrder = new int[clusters][];
+        int[] clusterJoined = new int[clusters];
+        for (int k = 0; k < n; k++) {
+            clusterJoined[protocol(order[k], pid).getClusterId()]++;
+        }
+        for (int c = 0; c < clusters; c++) {
+            clusterOrder[c] = new int[clusterJoined[c]];
+            clusterJoined[c] = 0;
+        }
+        for (int k = 0; k < n; k++) {
+            int c = protocol(order[k], pid).getClusterId();
+            clusterOrder[c][clusterJoined[c]++] = order[k];
+        }
+        Arrays.fill(clusterJoined, 0);
+        idBits = 64 - Long.numberOfLeadingZeros(maxId);
+
+        List<String> rows = new ArrayList<>();
+        LogHistogram allMessages = new LogHistogram();
+        LogHistogram windowMessages = new LogHistogram();
+        long[] totals = new long[5]; // lookups, rounds, messages, intra, inter
+        long[] windowTotals = new long[5];
+        int steps = 0;
+        Cost[] costs = new Cost[batch];
+
+        int joined = 0;
+        while (joined < n) {
+            // The first node has nobody to contact, so it enters alone
+            int size = joined == 0 ? 1 : Math.min(batch, n - joined);
+            int from = joined;
+            for (int k = from; k < from + size; k++) {
+                protocol(order[k], pid).joinCluster();
+            }
+            IntStream.range(from, from + size).parallel().forEach(k -> costs[k - from] =
+                    joinFrom(order[k], order, from, clusterOrder, clusterJoined, pid, seed, idBits));
+
+            // Peers learn of the newcomers that queried them
+            for (int k = from; k < from + size; k++) {
+                Cost cost = costs[k - from];
+                introduce(Network.get(order[k]), cost, pid);
+                int messages = cost.intraMessages + cost.interMessages;
+                long[] values = { cost.lookups, cost.rounds, messages, cost.intraMessages, cost.interMessages };
+                for (int v = 0; v < values.length; v++) {
+                    totals[v] += values[v];
+                    windowTotals[v] += values[v];
+                }
+                allMessages.record(messages);
+                windowMessages.record(messages);
+                costs[k - from] = null;
+                clusterJoined[protocol(order[k], pid).getClusterId()]++;
+
+                joined++;
+                if (joined % window == 0 || joined == n) {
+                    rows.add(row(joined, windowTotals, windowMessages, order, pid));
+                    Arrays.fill(windowTotals, 0);
+                    windowMessages.reset();
+                }
+            }
+            steps++;
+        }
+
+        write(rows);
+        System.out.printf(Locale.ROOT,
+                "Join: %d nodes in %d steps, per node %.2f lookups, %.2f rounds, %.2f messages (P50 %d, P99 %d), %.2f%% inter-cluster%n",
+                n, steps, (double) totals[0] / n, (double) totals[1] / n, (double) totals[2] / n,
+                allMessages.percentile(50), allMessages.percentile(99),
+                totals[2] > 0 ? 100.0 * totals[4] / totals[2] : 0);
+    }
+
+    // Joins a node arriving during the run, already in the network and its cluster. Its
+    // contacts are live nodes drawn at random, from its own cluster if some are found.
+    public void joinLive(Node node, int pid) {
+        DhtProtocol proto = (DhtProtocol) node.getProtocol(pid);
+        SplittableRandom random = nodeRandom(node.getIndex(), CommonState.r.getLastSeed());
+        int n = Network.size();
+        Node[] seeds = new Node[contacts];
+        int found = 0;
+        for (int tries = 0; found < contacts && tries < 2 * CONTACT_TRIES; tries++) {
+            Node candidate = Network.get(random.nextInt(n));
+            boolean sameCluster = protocol(candidate.getIndex(), pid).getClusterId() == proto.getClusterId();
+            if (candidate != node && candidate.isUp() && (sameCluster || tries >= CONTACT_TRIES)
+                    && !Arrays.asList(seeds).contains(candidate)) {
+                seeds[found++] = candidate;
+            }
+        }
+        if (idBits == 0) {
+            long maxId = 0;
+            for (int i = 0; i < n; i++) {
+                maxId = Math.max(maxId, Network.get(i).getID());
+            }
+            idBits = 64 - Long.numberOfLeadingZeros(maxId);
+        }
+        // A newcomer may carry a larger ID than any node seen so far
+        idBits = Math.max(idBits, 64 - Long.numberOfLeadingZeros(node.getID()));
+        introduce(node, join(node, Arrays.copyOf(seeds, found), random, pid, idBits), pid);
+    }
+
+    // Joins node i of a bootstrap step, which may only change its own table
+    private Cost joinFrom(int i, int[] order, int joined, int[][] clusterOrder, int[] clusterJoined,
+                          int pid, long seed, int idBits) {
+        Node node = Network.get(i);
+        SplittableRandom random = nodeRandom(i, seed);
+        if (joined == 0) return new Cost();
+
+        int cluster = protocol(i, pid).getClusterId();
+        int[] pool = clusterJoined[cluster] > 0 ? clusterOrder[cluster] : order;
+        int poolSize = clusterJoined[cluster] > 0 ? clusterJoined[cluster] : joined;
+        Node[] seeds = new Node[Math.min(contacts, poolSize)];
+        for (int c = 0; c < seeds.length; c++) {
+            seeds[c] = Network.get(pool[random.nextInt(poolSize)]);
+        }
+        return join(node, seeds, random, pid, idBits);
+    }
+
+    // Contacts, a self-lookup, then one lookup per bucket beyond the nearest peer found
+    private Cost join(Node node, Node[] seeds, SplittableRandom random, int pid, int idBits) {
+        DhtProtocol proto = (DhtProtocol) node.getProtocol(pid);
+        Cost cost = new Cost();
+        for (Node contact : seeds) {
+            proto.addPeer(contact);
+        }
+
+        RoutingEngine engine = RoutingEngine.get();
+        long selfId = node.getID();
+        cost.rounds += engine.findNode(proto, selfId, seeds, cost.queried);
+        cost.lookups++;
+
+        if (refresh) {
+            Node[] nearest = engine.closestNodes(proto, selfId, 1);
+            int firstBucket = nearest.length > 0 ? 64 - Long.numberOfLeadingZeros(nearest[0].getID() ^ selfId) : idBits;
+            for (int b = firstBucket; b < idBits; b++) {
+                long target = selfId ^ ((1L << b) | (random.nextLong() & ((1L << b) - 1)));
+                cost.rounds += engine.findNode(proto, target, null, cost.queried);
+                cost.lookups++;
+            }
+        }
+
+        for (Node peer : cost.queried) {
+            if (protocol(peer.getIndex(), pid).getClusterId() == proto.getClusterId()) {
+                cost.intraMessages++;
+            } else {
+                cost.interMessages++;
+            }
+        }
+        return cost;
+    }
+
+    // The live peers a joining node queried learn of it; its messages go to its counters
+    private static void introduce(Node node, Cost cost, int pid) {
+        for (Node peer : cost.queried) {
+            if (peer.isUp()) {
+                ((DhtProtocol) peer.getProtocol(pid)).addPeer(node);
+            }
+        }
+        ((DhtProtocol) node.getProtocol(pid)).recordJoin(cost.intraMessages, cost.interMessages);
+    }
+
+    private static SplittableRandom nodeRandom(int i, long seed) {
+        return new SplittableRandom(BootstrapPeers.mix(seed ^ BootstrapPeers.mix(i) ^ SALT));
+    }
+
+    // A Fisher-Yates shuffle of the network indices
+    private static int[] joinOrder(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(BootstrapPeers.mix(seed ^ SALT));
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int r = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[r];
+            order[r] = swap;
+        }
+        return order;
+    }
+
+    // Per-node averages over the window, and the table size of every node in so far
+    private static String row(int joined, long[] totals, LogHistogram messages, int[] order, int pid) {
+        long peers = 0;
+        for (int k = 0; k < joined; k++) {
+            peers += protocol(order[k], pid).getKBucketSize();
+        }
+        double count = messages.count();
+        return String.format(Locale.ROOT, "%d,%.2f,%.2f,%.2f,%.2f,%.2f,%d,%d,%.2f",
+                joined, totals[0] / count, totals[1] / count, totals[2] / count, totals[3] / count, totals[4] / count,
+                messages.percentile(50), messages.percentile(99), (double) peers / joined);
+    }
+
+    private void write(List<String> rows) {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println(CSV_HEADER);
+            for (String row : rows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private static DhtProtocol protocol(int index, int pid) {
+        return (DhtProtocol) Network.get(index).getProtocol(pid);
+    }
+}
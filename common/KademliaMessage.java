@@ -0,0 +1,42 @@
+// RPC exchanged between nodes in event-driven mode. Requests carry the key being routed;
+// replies carry the id of the operation they answer so the initiator can resume it, and the
+// number of the RPC within it, so a reply or timeout is matched to the very RPC it ends.
+import peersim.core.*;
+
+public class KademliaMessage {
+    // Requests
+    public static final int FIND_NODE = 0;
+    public static final int FIND_VALUE = 1;
+    public static final int STORE = 2;
+    // Path caching: keep a copy of key, found at nodes[0]; not answered
+    public static final int CACHE = 6;
+    // Cluster-cooperative cache: keep a copy of key for the cluster; not answered
+    public static final int CLUSTER_CACHE = 7;
+    // Scheduled by the initiator itself: sender has not answered RPC rpc within rpc_timeout
+    public static final int TIMEOUT = 8;
+    // Replies
+    public static final int NODES = 3;
+    public static final int VALUE = 4;
+    public static final int STORE_OK = 5;
+
+    public final int type;
+    public final long operationId;
+    public final int rpc;
+    public final Node sender;
+    public final long key;
+    // NODES replies: the sender's closest peers to key, nearest first; CACHE: the holder
+    public final Node[] nodes;
+
+    public KademliaMessage(int type, long operationId, int rpc, Node sender, long key, Node[] nodes) {
+        this.type = type;
+        this.operationId = operationId;
+        this.rpc = rpc;
+        this.sender = sender;
+        this.key = key;
+        this.nodes = nodes;
+    }
+
+    public boolean isReply() {
+        return type == NODES || type == VALUE || type == STORE_OK;
+    }
+}
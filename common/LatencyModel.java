@@ -0,0 +1,13 @@
+// One-way latency (ms) of a hop between two nodes. Selected per protocol with
+// protocol.<name>.latency = <class>; ClusterLatencyModel is used when none is configured.
+import peersim.core.*;
+
+public interface LatencyModel {
+    long latency(DhtProtocol from, DhtProtocol to);
+
+    // Cluster in [0, numClusters) that groups the node with its low-latency neighbours, or -1
+    // when the model has no notion of location and clusters are assigned round-robin
+    default int clusterOf(Node node, int numClusters) {
+        return -1;
+    }
+}
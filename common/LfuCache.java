@@ -0,0 +1,285 @@
+// Least-frequently-used cache: evicts from the lowest access count, oldest first within it.
+// O(1) per operation (Shah, Mitra and Matani): entries hang in per-frequency lists and the
+// frequency nodes form an ascending list, so the victim is always the head of the first node.
+// Entries and nodes live in preallocated int arrays and keys in a LongIntMap, so nothing is
+// allocated on get or put. With aging > 0 every count is halved after that many accesses, so
+// keys that were hot long ago cannot pin the cache forever.
+import peersim.core.*;
+import java.util.function.LongConsumer;
+
+public class LfuCache implements ContentCache {
+    private static final int NIL = -1;
+
+    private final int capacity;
+    private final int aging;
+    private final LongIntMap index;
+    private int size = 0;
+    private int accesses = 0;
+    private long insertions = 0;
+    private long evictions = 0;
+
+    // Entries: key, expiry, frequency node and neighbours within that node's list (oldest
+    // first); unused entries are chained through entryNext
+    private final long[] keys;
+    private final long[] expires;
+    private final int[] entryNode;
+    private final int[] entryPrev;
+    private final int[] entryNext;
+
+    // Frequency nodes, ascending by count; unused ones are chained through nodeNext
+    private final int[] frequency;
+    private final int[] head;
+    private final int[] tail;
+    private final int[] nodePrev;
+    private final int[] nodeNext;
+    private int first = NIL;
+    private int freeNodes;
+    private int freeEntries;
+
+    public LfuCache(int capacity) {
+        this(capacity, 0);
+    }
+
+    public LfuCache(int capacity, int aging) {
+        this.capacity = capacity;
+        this.aging = aging;
+        int slots = Math.max(capacity, 0);
+        this.index = new LongIntMap(slots);
+        this.keys = new long[slots];
+        this.expires = new long[slots];
+        this.entryNode = new int[slots];
+        this.entryPrev = new int[slots];
+        this.entryNext = new int[slots];
+        // One node per distinct count, plus one while an entry moves up
+        this.frequency = new int[slots + 1];
+        this.head = new int[slots + 1];
+        this.tail = new int[slots + 1];
+        this.nodePrev = new int[slots + 1];
+        this.nodeNext = new int[slots + 1];
+        clear();
+    }
+
+    public boolean get(long contentId) {
+        int e = live(contentId);
+        if (e == LongIntMap.ABSENT) {
+            return false;
+        }
+        touch(e);
+        return true;
+    }
+
+    public boolean contains(long contentId) {
+        return live(contentId) != LongIntMap.ABSENT;
+    }
+
+    public boolean peek(long contentId) {
+        int e = index.get(contentId);
+        return e != LongIntMap.ABSENT && expires[e] > CommonState.getTime();
+    }
+
+    public void put(long contentId) {
+        put(contentId, Long.MAX_VALUE);
+    }
+
+    public void put(long contentId, long expiresAt) {
+        if (capacity <= 0) {
+            return;
+        }
+
+        // If key exists, only its frequency and expiry change
+        int e = live(contentId);
+        if (e != LongIntMap.ABSENT) {
+            touch(e);
+            expires[e] = Math.max(expires[e], expiresAt);
+            return;
+        }
+
+        // If cache is full, the least frequently used entry makes room
+        if (size >= capacity) {
+            e = head[first];
+            remove(e);
+            evictions++;
+        }
+        e = freeEntries;
+        freeEntries = entryNext[e];
+        size++;
+        insertions++;
+        keys[e] = contentId;
+        expires[e] = expiresAt;
+        index.put(contentId, e);
+        if (first == NIL || frequency[first] != 1) {
+            newNode(1, NIL);
+        }
+        appendEntry(first, e);
+        countAccess();
+    }
+
+    public void forEach(LongConsumer action) {
+        long now = CommonState.getTime();
+        for (int node = first; node != NIL; node = nodeNext[node]) {
+            for (int e = head[node]; e != NIL; e = entryNext[e]) {
+                if (expires[e] > now) {
+                    action.accept(keys[e]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long insertions() {
+        return insertions;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public void clear() {
+        index.clear();
+        size = 0;
+        accesses = 0;
+        first = NIL;
+        for (int n = 0; n < nodeNext.length; n++) {
+            nodeNext[n] = n + 1 < nodeNext.length ? n + 1 : NIL;
+        }
+        freeNodes = nodeNext.length > 0 ? 0 : NIL;
+        for (int e = 0; e < entryNext.length; e++) {
+            entryNext[e] = e + 1 < entryNext.length ? e + 1 : NIL;
+        }
+        freeEntries = entryNext.length > 0 ? 0 : NIL;
+    }
+
+    // Entry holding contentId, or ABSENT if there is none or it has expired (it is then removed)
+    private int live(long contentId) {
+        int e = index.get(contentId);
+        if (e != LongIntMap.ABSENT && expires[e] <= CommonState.getTime()) {
+            remove(e);
+            evictions++;
+            return LongIntMap.ABSENT;
+        }
+        return e;
+    }
+
+    // Moves e up to the next frequency
+    private void touch(int e) {
+        int node = entryNode[e];
+        int next = nodeNext[node];
+        int count = frequency[node] + 1;
+        if (next == NIL || frequency[next] != count) {
+            next = newNode(count, node);
+        }
+        unlinkEntry(e);
+        appendEntry(next, e);
+        countAccess();
+    }
+
+    private void remove(int e) {
+        index.remove(keys[e]);
+        unlinkEntry(e);
+        entryNext[e] = freeEntries;
+        freeEntries = e;
+        size--;
+    }
+
+    private void countAccess() {
+        if (aging > 0 && ++accesses >= aging) {
+            accesses = 0;
+            age();
+        }
+    }
+
+    // Halves every count (keeping at least 1) and merges nodes whose counts now coincide,
+    // lower original count first so its entries stay first in line for eviction
+    private void age() {
+        int node = first;
+        while (node != NIL) {
+            int next = nodeNext[node];
+            frequency[node] = Math.max(1, frequency[node] >>> 1);
+            int prev = nodePrev[node];
+            if (prev != NIL && frequency[prev] == frequency[node]) {
+                for (int e = head[node]; e != NIL; e = entryNext[e]) {
+                    entryNode[e] = prev;
+                }
+                entryPrev[head[node]] = tail[prev];
+                entryNext[tail[prev]] = head[node];
+                tail[prev] = tail[node];
+                releaseNode(node);
+            }
+            node = next;
+        }
+    }
+
+    // Takes a node for count from the free chain and links it after `after` (NIL: at the front)
+    private int newNode(int count, int after) {
+        int node = freeNodes;
+        freeNodes = nodeNext[node];
+        frequency[node] = count;
+        head[node] = NIL;
+        tail[node] = NIL;
+        nodePrev[node] = after;
+        nodeNext[node] = after == NIL ? first : nodeNext[after];
+        if (nodeNext[node] != NIL) {
+            nodePrev[nodeNext[node]] = node;
+        }
+        if (after == NIL) {
+            first = node;
+        } else {
+            nodeNext[after] = node;
+        }
+        return node;
+    }
+
+    private void releaseNode(int node) {
+        int prev = nodePrev[node];
+        int next = nodeNext[node];
+        if (prev == NIL) {
+            first = next;
+        } else {
+            nodeNext[prev] = next;
+        }
+        if (next != NIL) {
+            nodePrev[next] = prev;
+        }
+        nodeNext[node] = freeNodes;
+        freeNodes = node;
+    }
+
+    private void appendEntry(int node, int e) {
+        entryNode[e] = node;
+        entryPrev[e] = tail[node];
+        entryNext[e] = NIL;
+        if (tail[node] == NIL) {
+            head[node] = e;
+        } else {
+            entryNext[tail[node]] = e;
+        }
+        tail[node] = e;
+    }
+
+    // Removes e from its node's list, releasing the node once it is empty
+    private void unlinkEntry(int e) {
+        int node = entryNode[e];
+        int prev = entryPrev[e];
+        int next = entryNext[e];
+        if (prev == NIL) {
+            head[node] = next;
+        } else {
+            entryNext[prev] = next;
+        }
+        if (next == NIL) {
+            tail[node] = prev;
+        } else {
+            entryPrev[next] = prev;
+        }
+        if (head[node] == NIL) {
+            releaseNode(node);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Fixed-memory histogram of non-negative longs in the style of HdrHistogram: values below 128
+// are counted exactly, larger ones in log-spaced buckets of 64 sub-buckets per power of two,
+// so any percentile is reported within 1.6% of the recorded value whatever the range.
+import java.util.Arrays;
+
+public class LogHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    // Negative values are counted as 0
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    // Smallest recorded value v such that at least percentile% of the values are <= v, given as
+    // the top of v's bucket (capped at the maximum); 0 if nothing was recorded
+    public long percentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) (value >>> shift) - HALF_COUNT;
+    }
+
+    private static long highestInBucket(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+        long mantissa = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,100 @@
+// Set of primitive longs with open addressing and linear probing: one long per slot instead of
+// a boxed Long plus a HashMap node per element. The table doubles once it is 70% full.
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+public class LongHashSet {
+    private static final double MAX_LOAD = 0.7;
+    // Marks an empty slot; the key 0 itself is tracked by hasZero
+    private static final long EMPTY = 0;
+
+    private long[] slots;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+    private boolean hasZero = false;
+
+    // Sized so that expectedSize elements fit without growing
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(expectedSize / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    // Returns false if the key was already present
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(key);
+        while (slots[i] != EMPTY) {
+            if (slots[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        if (++size > resizeAt) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) return hasZero;
+        int i = slot(key);
+        long k;
+        while ((k = slots[i]) != EMPTY) {
+            if (k == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (long key : slots) {
+            if (key != EMPTY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        hasZero = false;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        allocate(old.length * 2);
+        for (long key : old) {
+            if (key != EMPTY) {
+                int i = slot(key);
+                while (slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    // Content keys are clustered around node IDs, so mix all bits into the slot index
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
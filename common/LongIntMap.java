@@ -0,0 +1,90 @@
+// Map from primitive long keys to non-negative int values, with open addressing, linear
+// probing and backward-shift deletion, so neither lookups nor removals allocate. Sized for a
+// fixed maximum number of keys, e.g. the slots of a bounded cache.
+import java.util.Arrays;
+
+public class LongIntMap {
+    public static final int ABSENT = -1;
+
+    private final long[] keys;
+    // value + 1, so that 0 marks an empty slot whatever the key
+    private final int[] values;
+    private final int mask;
+    private int size = 0;
+
+    // Keeps the table at most half full for maxSize keys
+    public LongIntMap(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int get(long key) {
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) return values[i] - 1;
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    // Adds or replaces the mapping; the caller keeps the number of keys within maxSize
+    public void put(long key, int value) {
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value + 1;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value + 1;
+        size++;
+    }
+
+    public void remove(long key) {
+        int i = slot(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = 0;
+                size--;
+                shiftBack(i);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    // Moves later entries of the probe run into the hole at gap so that every key stays
+    // reachable from its home slot without tombstones
+    private void shiftBack(int gap) {
+        int i = (gap + 1) & mask;
+        while (values[i] != 0) {
+            int home = slot(keys[i]);
+            // Entry at i may fill the gap unless its home lies cyclically in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = 0;
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,105 @@
+// One epoch of LOOKUPs, run on several threads at once. The simulator queues the epoch's
+// lookups while applying its stores as usual; run() then walks every queued lookup on a
+// ForkJoinPool against the state as the stores left it, touching nothing, and afterwards
+// replays each lookup's side effects (cache accesses and expiries, path and cluster copies,
+// counters) on the calling thread in request order. Lookups in an epoch therefore do not see
+// each other's copies, but the outcome depends only on the epoch size, never on the thread
+// count or scheduling: every walk reads the same frozen state, and every write happens in
+// order.
+import peersim.core.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class LookupBatch {
+    // Fewer lookups than this are walked on one thread rather than split further
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final ForkJoinPool pool;
+    private final DhtProtocol[] origins;
+    private final long[] keys;
+    private final long[] times;
+    private final SplittableRandom[] streams;
+    private final LookupResult[] results;
+    private final LookupEffects[] effects;
+    private int size = 0;
+
+    public LookupBatch(int capacity, int threads) {
+        this.pool = new ForkJoinPool(threads);
+        this.origins = new DhtProtocol[capacity];
+        this.keys = new long[capacity];
+        this.times = new long[capacity];
+        this.streams = new SplittableRandom[capacity];
+        this.results = new LookupResult[capacity];
+        this.effects = new LookupEffects[capacity];
+        for (int i = 0; i < capacity; i++) {
+            effects[i] = new LookupEffects();
+        }
+    }
+
+    // Queues a lookup of contentId from origin at the current time; returns true once the
+    // epoch is full and must be run. The lookup's random stream is split off here, in request
+    // order, as DhtProtocol.executeLookup does.
+    public boolean add(DhtProtocol origin, long contentId) {
+        origins[size] = origin;
+        keys[size] = contentId;
+        times[size] = CommonState.getTime();
+        streams[size] = SimRandom.current().split();
+        size++;
+        return size == origins.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Runs the queued lookups, passes their results to done in request order and empties
+    // the batch
+    public void run(Consumer<LookupResult> done) {
+        if (size == 0) return;
+        pool.invoke(new Walks(0, size));
+
+        long now = CommonState.getTime();
+        for (int i = 0; i < size; i++) {
+            CommonState.setTime(times[i]);
+            origins[i].applyLookup(keys[i], results[i], effects[i]);
+            done.accept(results[i]);
+            origins[i] = null;
+            results[i] = null;
+            streams[i] = null;
+        }
+        CommonState.setTime(now);
+        size = 0;
+    }
+
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Walks lookups [from, to), halving the range across the pool's threads
+    private class Walks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Walks(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    SplittableRandom caller = SimRandom.swap(streams[i]);
+                    results[i] = origins[i].frozenLookup(keys[i], effects[i]);
+                    SimRandom.swap(caller);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Walks(from, mid), new Walks(mid, to));
+        }
+    }
+}
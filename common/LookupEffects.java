@@ -0,0 +1,39 @@
+// Side effects of a LOOKUP that ran against frozen state (see LookupBatch), kept until
+// DhtProtocol.applyLookup replays them in request order: the initiator's own cache access,
+// summary accuracy counts, the remote cache hit, the expired entries the walk would have
+// dropped from the caches it checked, the copies left at the cluster home and on the path,
+// and the contacts found dead on the way.
+import peersim.core.*;
+import java.util.*;
+
+public class LookupEffects {
+    // The initiator has a cache, and whether the lookup hit it
+    boolean cacheAccessed;
+    boolean cacheHit;
+    // The lookup walked the network (and has messages to record)
+    boolean walked;
+    long summaryFalsePositives;
+    long summaryTrueNegatives;
+    // Peer that answered from its cache rather than its store
+    Node remoteHit;
+    // Peers whose cache missed: checking drops an expired entry, which the walk left in place
+    final List<Node> cacheMisses = new ArrayList<>();
+    Node holder;
+    Node clusterCopy;
+    Node pathCopy;
+    final List<Node> deadContacts = new ArrayList<>();
+
+    void reset() {
+        cacheAccessed = false;
+        cacheHit = false;
+        walked = false;
+        summaryFalsePositives = 0;
+        summaryTrueNegatives = 0;
+        remoteHit = null;
+        cacheMisses.clear();
+        holder = null;
+        clusterCopy = null;
+        pathCopy = null;
+        deadContacts.clear();
+    }
+}
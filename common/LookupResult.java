@@ -0,0 +1,16 @@
+// Outcome of one LOOKUP: whether the content was found, peers queried, latency and messages by cluster
+public class LookupResult {
+    public final boolean success;
+    public final int hops;
+    public final long latency;
+    public final int lookupInterMessages;
+    public final int lookupIntraMessages;
+
+    public LookupResult(boolean success, int hops, long latency, int lookupIntraMessages, int lookupInterMessages) {
+        this.success = success;
+        this.hops = hops;
+        this.latency = latency;
+        this.lookupInterMessages = lookupInterMessages;
+        this.lookupIntraMessages = lookupIntraMessages;
+    }
+}
@@ -0,0 +1,6 @@
+// Least-recently-used cache: every hit moves the entry to the young end
+public class LruCache extends FifoCache {
+    public LruCache(int capacity) {
+        super(capacity, true);
+    }
+}
@@ -0,0 +1,97 @@
+// Router-to-router latencies from a measured matrix, e.g. the King dataset loaded into
+// E2ENetwork by peersim.transport.KingParser (which must run as an earlier initializer).
+// On first use the matrix is copied into one flat int array, so a hop costs two router
+// lookups and one array read. A node's router comes from a RouterInfo protocol when
+// `router` names one (e.g. E2ETransport set up by UniformRouterAssignment); otherwise it
+// is a fixed hash of the node ID, which stays stable as nodes join and leave.
+import peersim.core.*;
+import peersim.config.*;
+import peersim.transport.*;
+import java.util.Arrays;
+
+public class MatrixLatencyModel implements LatencyModel {
+    private static final String PAR_ROUTER = "router";
+
+    private final int routerPid;
+    private int routers;
+    private int[] latencies;
+
+    // Router clusters for the last numClusters asked for (see clusterOf)
+    private int[] routerCluster;
+    private int routerClusterCount;
+
+    public MatrixLatencyModel(String prefix) {
+        this.routerPid = Configuration.contains(prefix + "." + PAR_ROUTER)
+                ? Configuration.getPid(prefix + "." + PAR_ROUTER) : -1;
+    }
+
+    public long latency(DhtProtocol from, DhtProtocol to) {
+        if (latencies == null) load();
+        return latencies[routerOf(from.getSelfNode()) * routers + routerOf(to.getSelfNode())];
+    }
+
+    // Groups routers around numClusters centres picked by farthest-point traversal, and
+    // places each node in its router's group, so that clusters follow the measured topology
+    public int clusterOf(Node node, int numClusters) {
+        if (latencies == null) load();
+        if (routerCluster == null || routerClusterCount != numClusters) {
+            routerCluster = clusterRouters(numClusters);
+            routerClusterCount = numClusters;
+        }
+        return routerCluster[routerOf(node)];
+    }
+
+    public int routerOf(Node node) {
+        if (routerPid >= 0) {
+            return ((RouterInfo) node.getProtocol(routerPid)).getRouter();
+        }
+        // SplitMix64 finalizer: spreads sequential IDs evenly over the routers
+        long z = node.getID() + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) Long.remainderUnsigned(z, routers);
+    }
+
+    private void load() {
+        int n = E2ENetwork.getSize();
+        if (n == 0) {
+            throw new IllegalStateException("E2ENetwork is empty: run peersim.transport.KingParser as an initializer first");
+        }
+        int[] flat = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                flat[i * n + j] = E2ENetwork.getLatency(i, j);
+            }
+        }
+        this.latencies = flat;
+        this.routers = n;
+    }
+
+    private int[] clusterRouters(int numClusters) {
+        int k = Math.min(numClusters, routers);
+        int[] centres = new int[k];
+        // nearest[r]: latency from router r to its closest centre so far
+        long[] nearest = new long[routers];
+        int[] assignment = new int[routers];
+        Arrays.fill(nearest, Long.MAX_VALUE);
+
+        int next = 0;
+        for (int c = 0; c < k; c++) {
+            centres[c] = next;
+            long farthest = -1;
+            for (int r = 0; r < routers; r++) {
+                long d = latencies[r * routers + centres[c]];
+                if (d < nearest[r]) {
+                    nearest[r] = d;
+                    assignment[r] = c;
+                }
+                if (nearest[r] > farthest) {
+                    farthest = nearest[r];
+                    next = r;
+                }
+            }
+        }
+        return assignment;
+    }
+}
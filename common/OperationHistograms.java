@@ -0,0 +1,51 @@
+// Hops, latency and messages of one kind of operation, for one tick and for the whole run.
+// Each report adds one CSV row per metric with the percentiles the SLOs are written against.
+import java.util.*;
+
+public class OperationHistograms {
+    public static final String CSV_HEADER = "Tick,Operation,Metric,Count,Mean,P50,P90,P99,P99.9,Max";
+    private static final String[] METRICS = { "Hops", "Latency(ms)", "Messages" };
+
+    private final String operation;
+    private final LogHistogram[] tick = { new LogHistogram(), new LogHistogram(), new LogHistogram() };
+    private final LogHistogram[] total = { new LogHistogram(), new LogHistogram(), new LogHistogram() };
+
+    public OperationHistograms(String operation) {
+        this.operation = operation;
+    }
+
+    public void record(long hops, long latency, long messages) {
+        tick[0].record(hops);
+        tick[1].record(latency);
+        tick[2].record(messages);
+        total[0].record(hops);
+        total[1].record(latency);
+        total[2].record(messages);
+    }
+
+    // Adds the rows of the tick that just ended and starts the next one
+    public void closeTick(int tickNumber, List<String> rows) {
+        addRows(String.valueOf(tickNumber), tick, rows);
+        for (LogHistogram h : tick) {
+            h.reset();
+        }
+    }
+
+    // Adds the rows over every operation recorded so far, labelled as tick "All"
+    public void totals(List<String> rows) {
+        addRows("All", total, rows);
+    }
+
+    public LogHistogram totalLatency() {
+        return total[1];
+    }
+
+    private void addRows(String tickLabel, LogHistogram[] histograms, List<String> rows) {
+        for (int m = 0; m < METRICS.length; m++) {
+            LogHistogram h = histograms[m];
+            rows.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%.2f,%d,%d,%d,%d,%d",
+                    tickLabel, operation, METRICS[m], h.count(), h.mean(),
+                    h.percentile(50), h.percentile(90), h.percentile(99), h.percentile(99.9), h.max()));
+        }
+    }
+}
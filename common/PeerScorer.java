@@ -0,0 +1,10 @@
+// Orders lookup candidates: the shortlist keeps and queries the lowest-scored peers first.
+// Scores are compared as unsigned values, so a raw XOR distance is a valid score.
+import peersim.core.*;
+
+public interface PeerScorer {
+    long score(Node peer, long targetId);
+
+    // Plain Kademlia: XOR distance between the peer's ID and the target
+    PeerScorer XOR = (peer, targetId) -> peer.getID() ^ targetId;
+}
@@ -0,0 +1,86 @@
+// Unordered set of peers backed by a dense array, so the k-bucket can be scanned for the
+// closest peers without allocating iterators or intermediate collections
+import peersim.core.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+public class PeerSet {
+    private Node[] peers = new Node[16];
+    private int size = 0;
+    private final Map<Node, Integer> positions = new HashMap<>();
+
+    public boolean add(Node peer) {
+        if (positions.containsKey(peer)) return false;
+        if (size == peers.length) {
+            peers = Arrays.copyOf(peers, size * 2);
+        }
+        positions.put(peer, size);
+        peers[size++] = peer;
+        return true;
+    }
+
+    public boolean remove(Node peer) {
+        Integer pos = positions.remove(peer);
+        if (pos == null) return false;
+        removeAt(pos);
+        return true;
+    }
+
+    public boolean contains(Node peer) {
+        return positions.containsKey(peer);
+    }
+
+    public boolean removeIf(Predicate<Node> filter) {
+        boolean removed = false;
+        for (int i = size - 1; i >= 0; i--) {
+            if (filter.test(peers[i])) {
+                positions.remove(peers[i]);
+                removeAt(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    public Node get(int i) {
+        return peers[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Writes up to count peers closest to targetId into the caller's buffers (network
+    // indices and XOR distances, nearest first) and returns how many were written. Uses a
+    // bounded insertion into the output instead of heap-sorting the whole set.
+    public int closest(long targetId, int count, int[] outIndex, long[] outDistance) {
+        if (count <= 0) return 0;
+
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            long distance = peers[i].getID() ^ targetId;
+            if (found == count && Long.compareUnsigned(distance, outDistance[found - 1]) >= 0) {
+                continue;
+            }
+            int pos = found < count ? found++ : count - 1;
+            while (pos > 0 && Long.compareUnsigned(outDistance[pos - 1], distance) > 0) {
+                outIndex[pos] = outIndex[pos - 1];
+                outDistance[pos] = outDistance[pos - 1];
+                pos--;
+            }
+            outIndex[pos] = peers[i].getIndex();
+            outDistance[pos] = distance;
+        }
+        return found;
+    }
+
+    // Swap-remove: the last peer takes the freed slot
+    private void removeAt(int pos) {
+        int last = --size;
+        if (pos != last) {
+            peers[pos] = peers[last];
+            positions.put(peers[pos], pos);
+        }
+        peers[last] = null;
+    }
+}
@@ -0,0 +1,18 @@
+// A node's routing state. Each implementation is an insertion policy: it decides which
+// offered peers are kept, and answers closest-peer queries over the peers it kept.
+import peersim.core.*;
+
+public interface PeerTable {
+    // Offers a peer; returns true if the table kept (or refreshed) it
+    boolean add(Node peer);
+
+    boolean remove(Node peer);
+
+    boolean contains(Node peer);
+
+    int size();
+
+    // Writes up to count peers closest to targetId into the caller's buffers (network
+    // indices and XOR distances, nearest first) and returns how many were written
+    int closest(long targetId, int count, int[] outIndex, long[] outDistance);
+}
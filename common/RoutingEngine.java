@@ -0,0 +1,323 @@
+// Iterative Kademlia routing shared by every protocol variant: the FIND_NODE walk behind a
+// STORE or a join and the FIND_VALUE walk behind a LOOKUP. All run on a bounded Shortlist
+// ordered by the initiator's PeerScorer; which peers a node knows and holds is up to its
+// DhtProtocol. A queried peer that is down (see Churn) never replies: it costs its message
+// and, for a STORE, the round waits rpc_timeout for it; the origin evicts it from its table
+// and the walk goes on without it.
+import peersim.core.*;
+import java.util.List;
+
+public class RoutingEngine {
+    // Scratch state is reused across operations: every result is consumed before the next
+    // query is issued, and each thread gets its own engine.
+    private static final ThreadLocal<RoutingEngine> ENGINES = ThreadLocal.withInitial(RoutingEngine::new);
+
+    private int[] closestIndex = new int[0];
+    private long[] closestDistance = new long[0];
+    private Shortlist shortlist;
+    private Node[] probes = new Node[0];
+    private int shortlistCapacity = -1;
+    private int shortlistAlpha = -1;
+
+    public static RoutingEngine get() {
+        return ENGINES.get();
+    }
+
+    // Locates the kadK peers closest to contentId and pushes a replica to each of them.
+    // Each round queries the kadA best unqueried peers in parallel, so a round costs the
+    // slowest of its replies; the walk ends once the kadK best known peers have all answered.
+    public StoreResult store(DhtProtocol origin, long contentId) {
+        int kadK = origin.getKadK();
+        int kadA = origin.getKadA();
+        Shortlist shortlist = prepare(kadK, kadA);
+        PeerScorer scorer = origin.getScorer();
+        Node self = origin.getSelfNode();
+        seed(origin, contentId, kadK, scorer);
+
+        int hops = 0;
+        long latency = 0;
+        int localIntraMessages = 0;
+        int localInterMessages = 0;
+        int sourceClusterId = origin.getClusterId();
+        boolean learnPeers = origin.learnsPeersOnStore();
+
+        while (shortlist.hasUnqueried()) {
+            int roundSize = shortlist.nextRound(kadA);
+            hops++;
+
+            // Calculate latency for this hop
+            long maxHopLatency = 0;
+            for (int r = 0; r < roundSize; r++) {
+                Node peer = shortlist.roundPeer(r);
+                maxHopLatency = Math.max(maxHopLatency, peer.isUp() ? origin.calculateLatency(self, peer) : origin.getRpcTimeout());
+            }
+            latency += maxHopLatency;
+
+            // Process responses
+            for (int r = 0; r < roundSize; r++) {
+                Node peer = shortlist.roundPeer(r);
+                DhtProtocol peerProto = origin.protocolOf(peer);
+                if (peerProto.getClusterId() == sourceClusterId) {
+                    localIntraMessages++;
+                } else {
+                    localInterMessages++;
+                }
+                if (!peer.isUp()) {
+                    origin.evictDead(peer);
+                    shortlist.remove(peer);
+                    continue;
+                }
+
+                int neighbors = peerProto.findClosestPeers(contentId, kadK, closestIndex, closestDistance);
+                for (int j = 0; j < neighbors; j++) {
+                    Node neighbor = Network.get(closestIndex[j]);
+                    if (neighbor != self && shortlist.add(neighbor, scorer.score(neighbor, contentId)) && learnPeers) {
+                        origin.addPeer(neighbor);
+                    }
+                }
+            }
+        }
+
+        // Store content on final kadK closest peers and count actual receivers
+        int receivers = shortlist.size();
+        for (int i = 0; i < receivers; i++) {
+            DhtProtocol proto = origin.protocolOf(shortlist.get(i));
+            if (proto.getClusterId() == sourceClusterId) {
+                localIntraMessages++;
+            } else {
+                localInterMessages++;
+            }
+            proto.storeReplica(contentId);
+        }
+
+        origin.recordStore(localIntraMessages, localInterMessages);
+        return new StoreResult(hops, latency, receivers, localIntraMessages, localInterMessages);
+    }
+
+    // Walks towards contentId until some queried peer holds it, or the kadK best known peers
+    // have all been queried without success. Each queried peer counts as one hop; each round
+    // costs the slowest reply, a dead peer's being the RPC timeout, or the holder's reply in
+    // the round that finds it. Cluster
+    // members whose summary matches the key and the key's cluster cache home, if any, are
+    // asked first, as one round (see DhtProtocol.directoryProbes). On success
+    // the value is also cached at the queried peer closest to contentId (by XOR) that lacked
+    // it and at the cluster home, each costing one more message but no hop.
+    public LookupResult lookup(DhtProtocol origin, long contentId) {
+        return lookup(origin, contentId, null);
+    }
+
+    // With fx set, the lookup only reads node state, so lookups may run on several threads
+    // at once: the copies, cache hits and counters it would update are left in fx instead
+    // (see DhtProtocol.applyLookup).
+    public LookupResult lookup(DhtProtocol origin, long contentId, LookupEffects fx) {
+        int kadK = origin.getKadK();
+        int kadA = origin.getKadA();
+        Shortlist shortlist = prepare(kadK, kadA);
+        PeerScorer scorer = origin.getScorer();
+        Node self = origin.getSelfNode();
+        seed(origin, contentId, kadK, scorer);
+
+        int hops = 0;
+        long latency = 0;
+        boolean success = false;
+        int lookupInterMessages = 0;
+        int lookupIntraMessages = 0;
+        int sourceClusterId = origin.getClusterId();
+        Node holder = null;
+        Node closestMiss = null;
+        long closestMissDistance = -1; // unsigned: -1 is the farthest
+
+        // Directory probes answer with the value or not at all, since their own peers would
+        // pull the walk into the cluster, away from the replicas
+        Node home = origin.clusterCacheHome(contentId);
+        if (probes.length < kadA + 1) {
+            probes = new Node[kadA + 1];
+        }
+        int probeCount = origin.directoryProbes(contentId, home, probes, fx);
+        long maxHopLatency = 0;
+        for (int p = 0; p < probeCount && !success; p++) {
+            Node peer = probes[p];
+            hops++;
+            long peerLatency = peer.isUp() ? origin.calculateLatency(self, peer) : origin.getRpcTimeout();
+            maxHopLatency = Math.max(maxHopLatency, peerLatency);
+            lookupIntraMessages++;
+            if (!peer.isUp()) {
+                // A crashed member stays listed in its cluster until a timeout like this one
+                if (fx != null) {
+                    fx.deadContacts.add(peer);
+                } else {
+                    origin.evictDead(peer);
+                }
+            } else if (origin.protocolOf(peer).answersFindValue(contentId, fx)) {
+                success = true;
+                holder = peer;
+                maxHopLatency = peerLatency;
+            } else {
+                shortlist.addQueried(peer, scorer.score(peer, contentId));
+            }
+        }
+        latency += maxHopLatency;
+
+        while (!success && shortlist.hasUnqueried()) {
+            int roundSize = shortlist.nextRound(kadA);
+            maxHopLatency = 0;
+            for (int r = 0; r < roundSize; r++) {
+                hops++;
+                Node peer = shortlist.roundPeer(r);
+                long peerLatency = peer.isUp() ? origin.calculateLatency(self, peer) : origin.getRpcTimeout();
+                maxHopLatency = Math.max(maxHopLatency, peerLatency);
+                DhtProtocol peerProto = origin.protocolOf(peer);
+                if (peerProto.getClusterId() == sourceClusterId) {
+                    lookupIntraMessages++;
+                } else {
+                    lookupInterMessages++;
+                }
+                if (!peer.isUp()) {
+                    if (fx != null) {
+                        fx.deadContacts.add(peer);
+                    } else {
+                        origin.evictDead(peer);
+                    }
+                    shortlist.remove(peer);
+                    continue;
+                }
+                if (peerProto.answersFindValue(contentId, fx)) {
+                    success = true;
+                    holder = peer;
+                    maxHopLatency = peerLatency;
+                    break;
+                }
+                long distance = peer.getID() ^ contentId;
+                if (Long.compareUnsigned(distance, closestMissDistance) < 0) {
+                    closestMiss = peer;
+                    closestMissDistance = distance;
+                }
+                int neighbors = peerProto.findClosestPeers(contentId, kadK, closestIndex, closestDistance);
+                for (int j = 0; j < neighbors; j++) {
+                    Node neighbor = Network.get(closestIndex[j]);
+                    if (neighbor != self) {
+                        shortlist.add(neighbor, scorer.score(neighbor, contentId));
+                    }
+                }
+            }
+            latency += maxHopLatency;
+        }
+
+        Node clusterCopy = null;
+        Node pathCopy = null;
+        if (success && home != null && holder != home && home.isUp()) {
+            if (home != self) {
+                lookupIntraMessages++;
+            }
+            clusterCopy = home;
+        }
+        if (success && closestMiss != null && closestMiss != home) {
+            DhtProtocol cacher = origin.protocolOf(closestMiss);
+            if (cacher.cachesPathCopies()) {
+                if (cacher.getClusterId() == sourceClusterId) {
+                    lookupIntraMessages++;
+                } else {
+                    lookupInterMessages++;
+                }
+                pathCopy = closestMiss;
+            }
+        }
+
+        if (fx != null) {
+            fx.walked = true;
+            fx.holder = holder;
+            fx.clusterCopy = clusterCopy;
+            fx.pathCopy = pathCopy;
+        } else {
+            if (clusterCopy != null) {
+                origin.protocolOf(clusterCopy).storeClusterCopy(contentId);
+            }
+            if (pathCopy != null) {
+                origin.protocolOf(pathCopy).cachePathCopy(contentId, holder);
+            }
+            origin.recordLookup(lookupIntraMessages, lookupInterMessages);
+        }
+        return new LookupResult(success, hops, latency, lookupIntraMessages, lookupInterMessages);
+    }
+
+    // FIND_NODE walk towards targetId for a joining node (see JoinBootstrap): rounds go as in
+    // store, but every peer a reply names is offered to the origin's table, as a node learns
+    // from every reply. Queried peers are appended to queried, for the caller to count and
+    // to introduce the origin to. Contacts, if given, seed the walk along with the origin's
+    // own peers, even ones its table declined. Returns the number of rounds.
+    public int findNode(DhtProtocol origin, long targetId, Node[] contacts, List<Node> queried) {
+        int kadK = origin.getKadK();
+        int kadA = origin.getKadA();
+        Shortlist shortlist = prepare(kadK, kadA);
+        PeerScorer scorer = origin.getScorer();
+        Node self = origin.getSelfNode();
+        seed(origin, targetId, kadK, scorer);
+        if (contacts != null) {
+            for (Node contact : contacts) {
+                shortlist.add(contact, scorer.score(contact, targetId));
+            }
+        }
+
+        int rounds = 0;
+        while (shortlist.hasUnqueried()) {
+            int roundSize = shortlist.nextRound(kadA);
+            rounds++;
+            for (int r = 0; r < roundSize; r++) {
+                Node peer = shortlist.roundPeer(r);
+                queried.add(peer);
+                if (!peer.isUp()) {
+                    origin.evictDead(peer);
+                    shortlist.remove(peer);
+                    continue;
+                }
+                int neighbors = origin.protocolOf(peer).findClosestPeers(targetId, kadK, closestIndex, closestDistance);
+                for (int j = 0; j < neighbors; j++) {
+                    Node neighbor = Network.get(closestIndex[j]);
+                    if (neighbor != self) {
+                        origin.addPeer(neighbor);
+                        shortlist.add(neighbor, scorer.score(neighbor, targetId));
+                    }
+                }
+            }
+        }
+        return rounds;
+    }
+
+    // The node's count closest known peers to targetId as a fresh array, e.g. for a reply
+    public Node[] closestNodes(DhtProtocol node, long targetId, int count) {
+        if (closestIndex.length < count) {
+            closestIndex = new int[count];
+            closestDistance = new long[count];
+        }
+        int found = node.findClosestPeers(targetId, count, closestIndex, closestDistance);
+        Node[] nodes = new Node[found];
+        for (int j = 0; j < found; j++) {
+            nodes[j] = Network.get(closestIndex[j]);
+        }
+        return nodes;
+    }
+
+    // Seeds the shortlist with the kadK closest peers the origin knows of
+    private void seed(DhtProtocol origin, long contentId, int kadK, PeerScorer scorer) {
+        int found = origin.findClosestPeers(contentId, kadK, closestIndex, closestDistance);
+        for (int j = 0; j < found; j++) {
+            Node peer = Network.get(closestIndex[j]);
+            shortlist.add(peer, scorer.score(peer, contentId));
+        }
+    }
+
+    // Sizes the scratch buffers for kadK/kadA and returns an empty shortlist
+    private Shortlist prepare(int kadK, int kadA) {
+        if (closestIndex.length < kadK) {
+            closestIndex = new int[kadK];
+            closestDistance = new long[kadK];
+        }
+        if (shortlistCapacity != kadK || shortlistAlpha != kadA) {
+            shortlist = new Shortlist(kadK, kadA);
+            shortlistCapacity = kadK;
+            shortlistAlpha = kadA;
+        }
+        shortlist.reset();
+        return shortlist;
+    }
+}
@@ -0,0 +1,188 @@
+// Kademlia routing table: one k-bucket per XOR common-prefix length with the owner's ID
+import peersim.core.*;
+
+public class RoutingTable implements PeerTable {
+    private static final int ID_BITS = 64;
+
+    private final long selfId;
+    private final int bucketSize;
+
+    // buckets[i] holds peers whose XOR distance to selfId has its highest set bit at i,
+    // i.e. peers sharing exactly (63 - i) leading bits with us. Allocated on first use.
+    private final Node[][] buckets = new Node[ID_BITS][];
+    private final int[] counts = new int[ID_BITS];
+    // Per bucket, peers offered while it was full, most recently seen last: the bucket's
+    // replacement cache, which refills it when a contact is removed. Allocated on first use.
+    private final Node[][] replacements = new Node[ID_BITS][];
+    private final int[] replacementCounts = new int[ID_BITS];
+    private int size = 0;
+
+    public RoutingTable(long selfId, int bucketSize) {
+        this.selfId = selfId;
+        this.bucketSize = bucketSize;
+    }
+
+    // Returns the bucket a given ID falls into, or -1 for our own ID
+    public int bucketIndex(long id) {
+        return ID_BITS - 1 - Long.numberOfLeadingZeros(selfId ^ id);
+    }
+
+    // Inserts or refreshes a peer. A known peer moves to the tail of its bucket (most
+    // recently seen); a new peer is dropped when its bucket is full, since long-lived
+    // contacts are the ones most likely to stay online; it waits in the replacement cache.
+    public boolean add(Node peer) {
+        int b = bucketIndex(peer.getID());
+        if (b < 0) return false;
+
+        Node[] bucket = buckets[b];
+        if (bucket == null) {
+            bucket = buckets[b] = new Node[bucketSize];
+        }
+        int count = counts[b];
+        for (int i = 0; i < count; i++) {
+            if (bucket[i] == peer) {
+                System.arraycopy(bucket, i + 1, bucket, i, count - i - 1);
+                bucket[count - 1] = peer;
+                return true;
+            }
+        }
+        if (count >= bucketSize) {
+            remember(b, peer);
+            return false;
+        }
+
+        bucket[count] = peer;
+        counts[b]++;
+        size++;
+        return true;
+    }
+
+    // Removes a peer, e.g. one that stopped answering. Its bucket takes the most recently
+    // seen peer from the replacement cache in its place, if there is one.
+    public boolean remove(Node peer) {
+        int b = bucketIndex(peer.getID());
+        if (b < 0 || buckets[b] == null) return false;
+        forget(b, peer);
+
+        Node[] bucket = buckets[b];
+        int count = counts[b];
+        for (int i = 0; i < count; i++) {
+            if (bucket[i] == peer) {
+                System.arraycopy(bucket, i + 1, bucket, i, count - i - 1);
+                if (replacementCounts[b] > 0) {
+                    int last = --replacementCounts[b];
+                    bucket[count - 1] = replacements[b][last];
+                    replacements[b][last] = null;
+                } else {
+                    bucket[count - 1] = null;
+                    counts[b]--;
+                    size--;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Puts a peer at the tail of bucket b's replacement cache, dropping the oldest if full
+    private void remember(int b, Node peer) {
+        forget(b, peer);
+        if (replacements[b] == null) {
+            replacements[b] = new Node[bucketSize];
+        }
+        Node[] cache = replacements[b];
+        int count = replacementCounts[b];
+        if (count == cache.length) {
+            System.arraycopy(cache, 1, cache, 0, count - 1);
+            count--;
+        }
+        cache[count] = peer;
+        replacementCounts[b] = count + 1;
+    }
+
+    private void forget(int b, Node peer) {
+        Node[] cache = replacements[b];
+        int count = replacementCounts[b];
+        for (int i = 0; i < count; i++) {
+            if (cache[i] == peer) {
+                System.arraycopy(cache, i + 1, cache, i, count - i - 1);
+                cache[count - 1] = null;
+                replacementCounts[b]--;
+                return;
+            }
+        }
+    }
+
+    public boolean contains(Node peer) {
+        int b = bucketIndex(peer.getID());
+        if (b < 0 || buckets[b] == null) return false;
+        for (int i = 0; i < counts[b]; i++) {
+            if (buckets[b][i] == peer) return true;
+        }
+        return false;
+    }
+
+    // Writes up to count peers closest to targetId into the caller's buffers (network
+    // indices and XOR distances, nearest first) and returns how many were written.
+    // Buckets are visited in XOR order relative to the target, so only the buckets that
+    // can contribute are read:
+    //  - the target's own bucket t (distance to target < 2^t),
+    //  - then every bucket below t together (distance to target in [2^t, 2^(t+1))),
+    //  - then buckets t+1, t+2, ... (distance to target in [2^j, 2^(j+1))).
+    // Each group is strictly farther than the previous one, so we stop as soon as the
+    // buffers are full after a group.
+    public int closest(long targetId, int count, int[] outIndex, long[] outDistance) {
+        if (count <= 0 || size == 0) return 0;
+
+        int found = 0;
+        int t = bucketIndex(targetId);
+        if (t >= 0) {
+            found = offerBucket(t, targetId, count, found, outIndex, outDistance);
+            if (found >= count) return found;
+
+            for (int b = t - 1; b >= 0; b--) {
+                found = offerBucket(b, targetId, count, found, outIndex, outDistance);
+            }
+            if (found >= count) return found;
+        }
+
+        for (int b = t + 1; b < ID_BITS; b++) {
+            found = offerBucket(b, targetId, count, found, outIndex, outDistance);
+            if (found >= count) return found;
+        }
+        return found;
+    }
+
+    // Partial selection: inserts a candidate into the sorted, bounded output if it is among
+    // the count nearest seen so far. Returns the new number of entries.
+    private static int offer(Node peer, long distance, int count, int found, int[] outIndex, long[] outDistance) {
+        if (found == count && Long.compareUnsigned(distance, outDistance[found - 1]) >= 0) {
+            return found;
+        }
+        int pos = found < count ? found : count - 1;
+        while (pos > 0 && Long.compareUnsigned(outDistance[pos - 1], distance) > 0) {
+            outIndex[pos] = outIndex[pos - 1];
+            outDistance[pos] = outDistance[pos - 1];
+            pos--;
+        }
+        outIndex[pos] = peer.getIndex();
+        outDistance[pos] = distance;
+        return found < count ? found + 1 : found;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int bucketCount(int b) {
+        return counts[b];
+    }
+
+    private int offerBucket(int b, long targetId, int count, int found, int[] outIndex, long[] outDistance) {
+        Node[] bucket = buckets[b];
+        for (int i = 0; i < counts[b]; i++) {
+            found = offer(bucket[i], bucket[i].getID() ^ targetId, count, found, outIndex, outDistance);
+        }
+        return found;
+    }
+}
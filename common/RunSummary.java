@@ -0,0 +1,54 @@
+// Headline numbers of one run as Metric,Value rows: written by a simulator when
+// `summary_file` is set, and gathered from every grid point by SweepRunner.
+import java.io.*;
+import java.util.*;
+
+public class RunSummary {
+    public static final String CSV_HEADER = "Metric,Value";
+
+    private final List<String> rows = new ArrayList<>();
+
+    public RunSummary add(String metric, long value) {
+        rows.add(metric + "," + value);
+        return this;
+    }
+
+    public RunSummary add(String metric, double value) {
+        rows.add(metric + "," + String.format(Locale.ROOT, "%.4f", value));
+        return this;
+    }
+
+    // Latency percentiles of an operation, e.g. LookupLatencyP99(ms)
+    public RunSummary addLatency(String operation, LogHistogram latency) {
+        add(operation + "LatencyP50(ms)", latency.percentile(50));
+        add(operation + "LatencyP90(ms)", latency.percentile(90));
+        add(operation + "LatencyP99(ms)", latency.percentile(99));
+        return add(operation + "LatencyP99.9(ms)", latency.percentile(99.9));
+    }
+
+    public void write(String filename) {
+        try (PrintWriter writer = new PrintWriter(filename)) {
+            writer.println(CSV_HEADER);
+            for (String row : rows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    // Rows of a written summary in file order, metric to value
+    public static Map<String, String> read(File file) throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine(); // header
+            while ((line = reader.readLine()) != null) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0) {
+                    values.put(line.substring(0, comma), line.substring(comma + 1));
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,129 @@
+// Candidate list for an iterative lookup: the (at most) capacity best-scored peers seen so
+// far, sorted by score (see PeerScorer), each marked queried or not. A peer is never held
+// twice, and once pushed out by better peers it can never come back, because the list's
+// worst score only shrinks; only removing a peer that did not answer frees a slot, and that
+// peer is refused for the rest of the walk.
+import peersim.core.*;
+import java.util.Arrays;
+
+public class Shortlist {
+    private final Node[] nodes;
+    private final long[] scores;
+    private final boolean[] queried;
+    private final Node[] round;
+    private Node[] failed = new Node[0];
+    private int size = 0;
+    private int roundSize = 0;
+    private int failedCount = 0;
+
+    public Shortlist(int capacity, int alpha) {
+        this.nodes = new Node[capacity];
+        this.scores = new long[capacity];
+        this.queried = new boolean[capacity];
+        this.round = new Node[alpha];
+    }
+
+    // Empties the list for a new lookup
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            nodes[i] = null;
+        }
+        for (int i = 0; i < failedCount; i++) {
+            failed[i] = null;
+        }
+        size = 0;
+        roundSize = 0;
+        failedCount = 0;
+    }
+
+    // Offers a peer with its score (lower is better); returns true if it entered the list
+    public boolean add(Node peer, long score) {
+        return add(peer, score, false);
+    }
+
+    // Adds a peer that was already queried outside the walk, so it is not asked again; one
+    // already in the list is marked queried. Returns true if it entered the list.
+    public boolean addQueried(Node peer, long score) {
+        return add(peer, score, true);
+    }
+
+    private boolean add(Node peer, long score, boolean alreadyQueried) {
+        for (int i = 0; i < size; i++) {
+            if (nodes[i] == peer) {
+                queried[i] |= alreadyQueried;
+                return false;
+            }
+        }
+        int capacity = nodes.length;
+        if (size == capacity && Long.compareUnsigned(score, scores[size - 1]) >= 0) {
+            return false;
+        }
+        for (int i = 0; i < failedCount; i++) {
+            if (failed[i] == peer) return false;
+        }
+
+        int pos = size < capacity ? size++ : capacity - 1;
+        while (pos > 0 && Long.compareUnsigned(scores[pos - 1], score) > 0) {
+            nodes[pos] = nodes[pos - 1];
+            scores[pos] = scores[pos - 1];
+            queried[pos] = queried[pos - 1];
+            pos--;
+        }
+        nodes[pos] = peer;
+        scores[pos] = score;
+        queried[pos] = alreadyQueried;
+        return true;
+    }
+
+    // Drops a peer that did not answer (see Churn), so the walk goes on without it
+    public void remove(Node peer) {
+        for (int i = 0; i < size; i++) {
+            if (nodes[i] == peer) {
+                System.arraycopy(nodes, i + 1, nodes, i, size - i - 1);
+                System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+                System.arraycopy(queried, i + 1, queried, i, size - i - 1);
+                nodes[--size] = null;
+                break;
+            }
+        }
+        if (failedCount == failed.length) {
+            failed = Arrays.copyOf(failed, Math.max(4, failedCount * 2));
+        }
+        failed[failedCount++] = peer;
+    }
+
+    // Picks the next round: up to alpha of the best-scored unqueried peers, marking them
+    // queried. Returns how many were picked; read them back with roundPeer(i).
+    public int nextRound(int alpha) {
+        roundSize = 0;
+        int limit = Math.min(alpha, round.length);
+        for (int i = 0; i < size && roundSize < limit; i++) {
+            if (!queried[i]) {
+                queried[i] = true;
+                round[roundSize++] = nodes[i];
+            }
+        }
+        return roundSize;
+    }
+
+    public Node roundPeer(int i) {
+        return round[i];
+    }
+
+    // False once every peer in the list has been queried, i.e. the k best known
+    // peers have all answered and the lookup has converged
+    public boolean hasUnqueried() {
+        for (int i = 0; i < size; i++) {
+            if (!queried[i]) return true;
+        }
+        return false;
+    }
+
+    public Node get(int i) {
+        return nodes[i];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,53 @@
+// Seeded random streams for the simulation. Every stream is split from one root generator
+// seeded with the PeerSim seed (random.seed), so identical configs produce identical runs;
+// components and threads each draw from their own stream instead of contending on one.
+import peersim.core.*;
+import java.util.SplittableRandom;
+
+public final class SimRandom {
+    private static SplittableRandom root;
+    private static volatile long rootSeed;
+    private static volatile ThreadLocal<SplittableRandom> perThread;
+
+    private SimRandom() {
+    }
+
+    // A new independent stream, e.g. for one workload generator. Streams are handed out in
+    // call order, so components must be created in a fixed order for runs to repeat.
+    public static synchronized SplittableRandom split() {
+        return root().split();
+    }
+
+    // The calling thread's own stream, for hot paths such as per-message latency
+    public static SplittableRandom current() {
+        ThreadLocal<SplittableRandom> streams = perThread;
+        if (streams == null || rootSeed != CommonState.r.getLastSeed()) {
+            streams = reset();
+        }
+        return streams.get();
+    }
+
+    // Makes stream the calling thread's stream and returns the one it replaces, e.g. so that a
+    // lookup draws from its own stream on whichever thread it runs (see LookupBatch)
+    public static SplittableRandom swap(SplittableRandom stream) {
+        SplittableRandom previous = current();
+        perThread.set(stream);
+        return previous;
+    }
+
+    private static synchronized ThreadLocal<SplittableRandom> reset() {
+        root();
+        return perThread;
+    }
+
+    // (Re)builds the root whenever PeerSim has been given a new seed
+    private static SplittableRandom root() {
+        long seed = CommonState.r.getLastSeed();
+        if (root == null || seed != rootSeed) {
+            root = new SplittableRandom(seed);
+            rootSeed = seed;
+            perThread = ThreadLocal.withInitial(SimRandom::split);
+        }
+        return root;
+    }
+}
@@ -0,0 +1,340 @@
+// STORE/LOOKUP driver shared by every variant: runs `requests` requests from a Workload (see
+// there for the workload parameters) and reports metrics every `tick` requests: averages in
+// the store/cluster CSVs, and hop, latency and message percentiles per tick and overall in
+// `percentile_file` (lookups count when successful, as in the averages), and, when nodes
+// cache content, cache hits, evictions and occupancy per tick in `cache_file`. With
+// `lookup_epoch` > 0 the lookups of every that many requests run as one LookupBatch on
+// `lookup_threads` threads (default: one per core) after the epoch's stores; epochs end at
+// tick boundaries so the per-tick metrics stay exact. With `churn` naming the prefix of a
+// Churn configuration, nodes leave and arrive between requests (a pending lookup epoch is
+// run first). Output files go to `output_dir`
+// (default: the working directory), along with the run's headline numbers in `summary_file`
+// if set (see RunSummary). A variant's
+// simulator class only supplies its title, default key proximity and output file names, so
+// benchmarks compare like with like.
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+import peersim.util.*;
+import java.util.*;
+import java.io.*;
+
+public abstract class StoreLookupSimulator implements Control {
+    private final int protocolID;
+    private final int kadK;
+    private final int kadA;
+    private final String title;
+    private final String storeMetricsFile;
+    private final String clusterMetricsFile;
+    private final String percentileFile;
+    private final String cacheFile;
+    private final String summaryFile;
+
+    // Metrics
+    private int totalStoreRequests = 0;
+    private int totalLookupRequests = 0;
+    private int successfulLookups = 0;
+    private int totalLookupHops = 0;
+    private long totalLatency = 0;
+    
+    // Per-tick metrics
+    private int tickStoreRequests = 0;
+    private int tickStoreHops = 0;
+    private long tickStoreLatency = 0;
+    private int tickStoreReceivers = 0;
+
+    // inter:intra
+
+    private int tickStoreInter = 0;
+    private int tickStoreIntra = 0;
+    private int tickLookupIntra = 0;
+    private int tickLookupInter = 0;
+
+
+    private final Map<Long, Integer> contentReceivers = new HashMap<>();
+
+    private final OperationHistograms storeHistograms = new OperationHistograms("STORE");
+    private final OperationHistograms lookupHistograms = new OperationHistograms("LOOKUP");
+    private final List<String> percentileRows = new ArrayList<>();
+    private final CacheMetrics cacheMetrics;
+
+    private final Workload workload;
+    private final int tickSize;
+    private final int totalRequests;
+    private final int lookupEpoch;
+    private final int lookupThreads;
+    private final Churn churn;
+
+    protected StoreLookupSimulator(String prefix, String title, int proximityBits,
+                                   String storeMetricsFile, String clusterMetricsFile) {
+        this.protocolID = Configuration.getPid(prefix + ".protocol");
+        this.kadK = Configuration.getInt(prefix + ".kadK", 20); // Default to IPFS standard
+        this.kadA = Configuration.getInt(prefix + ".kadA", 3);  // Default to IPFS standard
+        this.totalRequests = Configuration.getInt(prefix + ".requests", 150000);
+        this.tickSize = Configuration.getInt(prefix + ".tick", 15000);
+        this.workload = new Workload(prefix, proximityBits, SimRandom.split());
+        this.title = title;
+        String outputDir = Configuration.getString(prefix + ".output_dir", "");
+        this.storeMetricsFile = outputFile(outputDir, storeMetricsFile);
+        this.clusterMetricsFile = outputFile(outputDir, clusterMetricsFile);
+        this.percentileFile = outputFile(outputDir, Configuration.getString(prefix + ".percentile_file",
+                storeMetricsFile.replace("store_metrics", "percentile_metrics")));
+        this.cacheFile = outputFile(outputDir, Configuration.getString(prefix + ".cache_file",
+                storeMetricsFile.replace("store_metrics", "cache_metrics")));
+        String summary = Configuration.getString(prefix + ".summary_file", null);
+        this.summaryFile = summary != null ? outputFile(outputDir, summary) : null;
+        this.cacheMetrics = new CacheMetrics(protocolID);
+        this.lookupEpoch = Configuration.getInt(prefix + ".lookup_epoch", 0);
+        this.lookupThreads = Configuration.getInt(prefix + ".lookup_threads", Runtime.getRuntime().availableProcessors());
+        String churnPrefix = Configuration.getString(prefix + ".churn", null);
+        this.churn = churnPrefix != null ? new Churn(churnPrefix) : null;
+    }
+
+    @Override
+    public boolean execute() {
+        List<Double> storeHopsPerTick = new ArrayList<>();
+        List<Double> storeLatencyPerTick = new ArrayList<>();
+        List<Integer> storeReceiversPerTick = new ArrayList<>();
+        List<Integer> bucketSizePerTick = new ArrayList<>();
+        List<Double> storeInterIntraPerTick = new ArrayList<>();
+        List<Double> lookupInterIntraPerTick = new ArrayList<>();
+        int totalKBucketSize = 0;
+
+        LookupBatch batch = lookupEpoch > 0 ? new LookupBatch(lookupEpoch, lookupThreads) : null;
+
+        // Each request takes one time unit, so cache TTLs count requests
+        long startTime = CommonState.getTime();
+        for (int i = 0; i < totalRequests && workload.next(); i++) {
+            CommonState.setTime(startTime + i);
+            Node initiatorNode = Network.get(workload.initiator);
+            DhtProtocol protocol = (DhtProtocol) initiatorNode.getProtocol(protocolID);
+
+            int bucketSize = protocol.getKBucketSize();
+            totalKBucketSize += bucketSize;
+
+            // Store operation
+            if (workload.storeKey != Workload.NONE) {
+                long contentKey = workload.storeKey;
+                StoreResult storeResult = protocol.executeStore(contentKey);
+
+                // Update receiver count for this content
+                int currentReceivers = contentReceivers.getOrDefault(contentKey, 0);
+                contentReceivers.put(contentKey, currentReceivers + storeResult.actualReceivers);
+
+                workload.stored(contentKey, protocol.getClusterId());
+                totalStoreRequests++;
+                tickStoreRequests++;
+                tickStoreHops += storeResult.hops;
+                tickStoreLatency += storeResult.latency;
+                tickStoreReceivers += storeResult.actualReceivers;
+                tickStoreInter += storeResult.localInterMessages;
+                tickStoreIntra += storeResult.localIntraMessages;
+                storeHistograms.record(storeResult.hops, storeResult.latency,
+                        storeResult.localIntraMessages + storeResult.localInterMessages);
+            }
+
+            // Lookup operation
+            if (workload.lookup) {
+                long key = workload.lookupKey(protocol.getClusterId());
+                if (key != Workload.NONE) {
+                    if (batch == null) {
+                        recordLookup(protocol.executeLookup(key));
+                    } else if (batch.add(protocol, key)) {
+                        batch.run(this::recordLookup);
+                    }
+                }
+            }
+
+            // Collect metrics at each tick interval
+            if (i % tickSize == 0 && i > 0) {
+                if (batch != null) {
+                    batch.run(this::recordLookup);
+                }
+                double avgStoreHops = tickStoreRequests > 0 ? 
+                    (double) tickStoreHops / tickStoreRequests : 0;
+                double avgStoreLatency = tickStoreRequests > 0 ? 
+                    (double) tickStoreLatency / tickStoreRequests : 0;
+                double avgReceivers = tickStoreRequests > 0 ? 
+                    (double) tickStoreReceivers / tickStoreRequests : 0;
+
+                storeHopsPerTick.add(avgStoreHops);
+                storeLatencyPerTick.add(avgStoreLatency);
+                storeReceiversPerTick.add((int) Math.round(avgReceivers));
+                bucketSizePerTick.add(totalKBucketSize);
+                storeInterIntraPerTick.add((double)tickStoreInter/tickStoreIntra);
+                lookupInterIntraPerTick.add((double)tickLookupInter/tickLookupIntra);
+                storeHistograms.closeTick(storeHopsPerTick.size(), percentileRows);
+                lookupHistograms.closeTick(storeHopsPerTick.size(), percentileRows);
+                cacheMetrics.sample(storeHopsPerTick.size());
+
+
+                // Reset tick counters
+                tickStoreRequests = 0;
+                tickStoreHops = 0;
+                tickStoreLatency = 0;
+                tickStoreReceivers = 0;
+
+                System.out.println(totalKBucketSize);
+                System.out.println((double)tickStoreInter/tickStoreIntra);
+                System.out.printf("Store Inter/Intra: %d/%d%n", tickStoreInter, tickStoreIntra);
+                System.out.println((double)tickLookupInter/tickLookupIntra);
+                System.out.printf("Lookup Inter/Intra: %d/%d%n", tickLookupInter, tickLookupIntra);
+                
+            }
+
+            // Nodes leave and arrive between requests, once pending lookups have walked
+            if (churn != null && churn.due()) {
+                if (batch != null) {
+                    batch.run(this::recordLookup);
+                }
+                churn.execute();
+            }
+        }
+
+        if (batch != null) {
+            batch.run(this::recordLookup);
+            batch.close();
+        }
+        workload.close();
+        if (churn != null) {
+            churn.close();
+        }
+        DhtProtocol.publishSummaries(protocolID);
+        CommonState.setTime(startTime);
+
+        // Write metrics to CSV
+        writeMetricsToCSV(storeHopsPerTick, storeLatencyPerTick, storeReceiversPerTick);
+        writeMetricToCSV(bucketSizePerTick, storeInterIntraPerTick, lookupInterIntraPerTick);
+        writePercentilesToCSV();
+        cacheMetrics.write(cacheFile);
+        if (summaryFile != null) {
+            writeSummary();
+        }
+        
+        // Print summary
+        printSummary(storeHopsPerTick, storeLatencyPerTick, storeReceiversPerTick);
+
+        System.out.println(totalKBucketSize);
+        System.out.println((double)tickStoreInter/tickStoreIntra);
+        System.out.printf("Store Inter/Intra: %d/%d%n", tickStoreInter, tickStoreIntra);
+        System.out.println((double)tickLookupInter/tickLookupIntra);
+        System.out.printf("Lookup Inter/Intra: %d/%d%n", tickLookupInter, tickLookupIntra);
+        
+        return false;
+    }
+
+    // Relative names resolve against dir, when one is given, which is created if need be
+    static String outputFile(String dir, String name) {
+        if (dir.isEmpty() || new File(name).isAbsolute()) return name;
+        new File(dir).mkdirs();
+        return new File(dir, name).getPath();
+    }
+
+    private void recordLookup(LookupResult result) {
+        totalLookupRequests++;
+        if (result.success) {
+            successfulLookups++;
+            totalLookupHops += result.hops;
+            totalLatency += result.latency;
+            tickLookupIntra += result.lookupIntraMessages;
+            tickLookupInter += result.lookupInterMessages;
+            lookupHistograms.record(result.hops, result.latency,
+                    result.lookupIntraMessages + result.lookupInterMessages);
+        }
+    }
+
+    private void writeMetricsToCSV(List<Double> hops, List<Double> latency, List<Integer> receivers) {
+        String filename = storeMetricsFile;
+        try (PrintWriter writer = new PrintWriter(filename)) {
+            writer.println("Tick,AvgStoreHops,AvgStoreLatency(ms),StoreReceivers");
+            for (int i = 0; i < hops.size(); i++) {
+                writer.printf("%d,%.2f,%.2f,%d%n",
+                    i+1, hops.get(i), latency.get(i), receivers.get(i));
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private void writeMetricToCSV(List<Integer> hops, List<Double> latency, List<Double> receivers) {
+        String filename = clusterMetricsFile;
+        try (PrintWriter writer = new PrintWriter(filename)) {
+            writer.println("Tick,KBucket Size,InterToIntraCluster Ratio - Store,InterToIntraCluster Ratio - Lookup");
+            for (int i = 0; i < hops.size(); i++) {
+                writer.printf("%d,%d,%.4f,%f%n",
+                    i+1, hops.get(i), latency.get(i), receivers.get(i));
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private void writeSummary() {
+        RunSummary summary = new RunSummary()
+                .add("StoreRequests", totalStoreRequests)
+                .add("LookupRequests", totalLookupRequests)
+                .add("SuccessfulLookups", successfulLookups)
+                .add("LookupSuccessRatio", totalLookupRequests > 0 ? (double) successfulLookups / totalLookupRequests : 0)
+                .add("AvgLookupHops", successfulLookups > 0 ? (double) totalLookupHops / successfulLookups : 0)
+                .add("AvgLookupLatency(ms)", successfulLookups > 0 ? (double) totalLatency / successfulLookups : 0)
+                .addLatency("Store", storeHistograms.totalLatency())
+                .addLatency("Lookup", lookupHistograms.totalLatency())
+                .add("StoreIntraMessages", tickStoreIntra)
+                .add("StoreInterMessages", tickStoreInter)
+                .add("LookupIntraMessages", tickLookupIntra)
+                .add("LookupInterMessages", tickLookupInter);
+        cacheMetrics.addTotals(summary);
+        if (churn != null) {
+            churn.addTotals(summary);
+        }
+        summary.write(summaryFile);
+    }
+
+    private void writePercentilesToCSV() {
+        storeHistograms.totals(percentileRows);
+        lookupHistograms.totals(percentileRows);
+        try (PrintWriter writer = new PrintWriter(percentileFile)) {
+            writer.println(OperationHistograms.CSV_HEADER);
+            for (String row : percentileRows) {
+                writer.println(row);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+    }
+
+    private void printSummary(List<Double> hops, List<Double> latency, List<Integer> receivers) {
+        System.out.println("=== " + title + " Simulation Summary ===");
+        System.out.println("\n=== " + title + " Store Operation Tick Metrics ===");
+        System.out.println("Tick\tAvgStoreHops\tAvgStoreLatency(ms)\tStoreReceivers");
+        
+        for (int i = 0; i < hops.size(); i++) {
+            System.out.printf("%d\t%.2f\t%.2f\t%d%n",
+                i+1, hops.get(i), latency.get(i), receivers.get(i));
+        }
+        
+        System.out.println("\nFinal Statistics:");
+        System.out.println("Total STORE requests: " + totalStoreRequests);
+        System.out.println("Total LOOKUP requests: " + totalLookupRequests);
+        System.out.println("Successful LOOKUPs: " + successfulLookups);
+        System.out.println("Average LOOKUP hops: " + 
+            (successfulLookups > 0 ? (double)totalLookupHops/successfulLookups : "N/A"));
+        System.out.println("Average LOOKUP latency (ms): " +
+            (successfulLookups > 0 ? (double)totalLatency/successfulLookups : "N/A"));
+        printTail("STORE", storeHistograms.totalLatency());
+        printTail("LOOKUP", lookupHistograms.totalLatency());
+        String cacheTotals = cacheMetrics.summary();
+        if (cacheTotals != null) {
+            System.out.println(cacheTotals);
+        }
+        String summaries = DhtProtocol.summaryStats(protocolID);
+        if (summaries != null) {
+            System.out.println(summaries);
+        }
+    }
+
+    private static void printTail(String operation, LogHistogram latency) {
+        System.out.printf("%s latency p50/p90/p99/p99.9 (ms): %d/%d/%d/%d%n", operation,
+            latency.percentile(50), latency.percentile(90), latency.percentile(99), latency.percentile(99.9));
+    }
+}
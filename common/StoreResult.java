@@ -0,0 +1,16 @@
+// Outcome of one STORE: FIND_NODE rounds, latency, replicas written and messages by cluster
+public class StoreResult {
+    public final int hops;
+    public final long latency;
+    public final int actualReceivers;
+    public final int localIntraMessages;
+    public final int localInterMessages;
+
+    public StoreResult(int hops, long latency, int actualReceivers, int localIntraMessages, int localInterMessages) {
+        this.hops = hops;
+        this.latency = latency;
+        this.actualReceivers = actualReceivers;
+        this.localIntraMessages = localIntraMessages;
+        this.localInterMessages = localInterMessages;
+    }
+}
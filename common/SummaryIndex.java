@@ -0,0 +1,287 @@
+// Content summaries published by the members of each cluster (see DhtProtocol's
+// summary_period), kept so a lookup finds the members whose summary matches a key without
+// reading every member's filter. A cluster's filters are stored bit-sliced: row p holds bit
+// p of every member's filter, one column per member, so the AND of the rows at a key's k
+// probe positions is the set of matching members. Rows span the widest filter; a filter
+// 2^s times narrower fills each of its bits into 2^s adjacent rows, which match exactly the
+// hashes the bit does (see BloomFilter).
+//
+// A member republishes once per period, at its own phase within it, and each publish costs
+// a message to every other member. Publishes that came due are carried out when the cluster
+// is next read, all periods since the last one counted, so the message count does not
+// depend on how often lookups read the cluster. Parallel lookups (see LookupBatch) read
+// the index from several threads, so every access is synchronized.
+import peersim.core.*;
+import java.util.*;
+
+public class SummaryIndex {
+    private final ClusterIndex members;
+    private final long period;
+    private final int pid;
+    private final int probes;
+    private Cluster[] clusters = new Cluster[0];
+
+    // Publishes a summary for every current member of every cluster
+    public SummaryIndex(ClusterIndex members, long period, int bitsPerKey, int pid) {
+        this.members = members;
+        this.period = period;
+        this.pid = pid;
+        this.probes = BloomFilter.probes(bitsPerKey);
+        long now = CommonState.getTime();
+        for (int cluster = 0; cluster < members.clusters(); cluster++) {
+            Cluster c = cluster(cluster);
+            for (int i = 0; i < members.size(cluster); i++) {
+                Node node = members.member(cluster, i);
+                int col = c.allocate(node);
+                c.epochs[col] = epoch(node, now);
+            }
+            c.schedule(period);
+            for (int col = 0; col < c.columns; col++) {
+                publish(c, col, 1);
+            }
+        }
+    }
+
+    // A node joined the cluster; it publishes its summary straight away
+    public synchronized void add(int cluster, Node node, long now) {
+        Cluster c = cluster(cluster);
+        refresh(c, now);
+        int col = c.allocate(node);
+        c.epochs[col] = epoch(node, now);
+        c.schedule(period);
+        publish(c, col, 1);
+    }
+
+    public synchronized void remove(int cluster, Node node) {
+        if (cluster >= clusters.length) return;
+        Cluster c = clusters[cluster];
+        Integer col = c.columnOf.remove(node);
+        if (col == null) return;
+        c.clearColumn(col);
+        c.nodes[col] = null;
+        c.filters[col] = null;
+        c.size--;
+        c.schedule(period);
+    }
+
+    // Writes to out, from index 0 and at most limit of them, the members of the cluster
+    // other than self whose summary as published by now matches key; returns the count
+    public synchronized int matches(int cluster, long key, long now, Node self, Node[] out, int limit) {
+        if (cluster >= clusters.length || limit <= 0) return 0;
+        Cluster c = clusters[cluster];
+        refresh(c, now);
+        if (c.size == 0) return 0;
+        long h1 = BloomFilter.hash1(key);
+        long h2 = BloomFilter.hash2(key);
+        int count = 0;
+        for (int w = 0; w < c.words && count < limit; w++) {
+            long match = -1L;
+            for (int i = 0; i < probes && match != 0; i++) {
+                match &= c.rows[(int) BloomFilter.position(h1 + i * h2, c.widthBits) * c.words + w];
+            }
+            while (match != 0 && count < limit) {
+                Node member = c.nodes[(w << 6) + Long.numberOfTrailingZeros(match)];
+                match &= match - 1;
+                if (member != self) {
+                    out[count++] = member;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Whether member's summary as last published matches key
+    public synchronized boolean mightContain(int cluster, Node member, long key) {
+        if (cluster >= clusters.length) return false;
+        Integer col = clusters[cluster].columnOf.get(member);
+        return col != null && clusters[cluster].filters[col].mightContain(key);
+    }
+
+    // Carries out every publish due by now, e.g. before the message counts are read
+    public synchronized void refresh(long now) {
+        for (Cluster c : clusters) {
+            refresh(c, now);
+        }
+    }
+
+    private void refresh(Cluster c, long now) {
+        if (now <= c.refreshed) return;
+        if (now - c.refreshed >= period) {
+            for (int col = 0; col < c.columns; col++) {
+                if (c.nodes[col] != null) {
+                    publishIfDue(c, col, now);
+                }
+            }
+        } else {
+            // Only members whose period starts in (refreshed, now] are due, found by offset
+            long from = Math.floorMod(c.refreshed, period);
+            long to = Math.floorMod(now, period);
+            int i = c.firstAfter(from);
+            if (from < to) {
+                for (; i < c.size && c.offsets[i] <= to; i++) {
+                    publishIfDue(c, c.order[i], now);
+                }
+            } else {
+                for (; i < c.size; i++) {
+                    publishIfDue(c, c.order[i], now);
+                }
+                for (i = 0; i < c.size && c.offsets[i] <= to; i++) {
+                    publishIfDue(c, c.order[i], now);
+                }
+            }
+        }
+        c.refreshed = now;
+    }
+
+    // A crashed member, still listed until a timeout evicts it, publishes nothing
+    private void publishIfDue(Cluster c, int col, long now) {
+        if (!c.nodes[col].isUp()) return;
+        long epoch = epoch(c.nodes[col], now);
+        if (epoch > c.epochs[col]) {
+            publish(c, col, epoch - c.epochs[col]);
+            c.epochs[col] = epoch;
+        }
+    }
+
+    private void publish(Cluster c, int col, long epochs) {
+        DhtProtocol proto = (DhtProtocol) c.nodes[col].getProtocol(pid);
+        BloomFilter filter = proto.publishSummary(epochs, c.size - 1);
+        c.filters[col] = filter;
+        if (filter.widthBits() > c.widthBits) {
+            c.widen(filter.widthBits());
+        } else {
+            c.fillColumn(col);
+        }
+    }
+
+    // Periods of the member's publishing started by time, counting from its phase
+    private long epoch(Node node, long time) {
+        return Math.floorDiv(time + Math.floorMod(node.getID(), period), period);
+    }
+
+    private Cluster cluster(int cluster) {
+        if (cluster >= clusters.length) {
+            int length = clusters.length;
+            clusters = Arrays.copyOf(clusters, Math.max(cluster + 1, members.clusters()));
+            for (int i = length; i < clusters.length; i++) {
+                clusters[i] = new Cluster(CommonState.getTime());
+            }
+        }
+        return clusters[cluster];
+    }
+
+    private static class Cluster {
+        private static final int INITIAL_COLUMNS = 64;
+
+        final Map<Node, Integer> columnOf = new HashMap<>();
+        Node[] nodes = new Node[INITIAL_COLUMNS];
+        BloomFilter[] filters = new BloomFilter[INITIAL_COLUMNS];
+        long[] epochs = new long[INITIAL_COLUMNS];
+        int columns = 0; // columns in use or freed, all below this
+        int size = 0;
+        int words = 1;
+        int widthBits = 6;
+        long[] rows = new long[64];
+        long refreshed;
+        // Members' columns ordered by the offset within the period at which each publishes
+        int[] order = new int[0];
+        long[] offsets = new long[0];
+
+        Cluster(long created) {
+            this.refreshed = created;
+        }
+
+        int allocate(Node node) {
+            int col = 0;
+            while (col < columns && nodes[col] != null) {
+                col++;
+            }
+            if (col == nodes.length) {
+                int capacity = nodes.length * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                filters = Arrays.copyOf(filters, capacity);
+                epochs = Arrays.copyOf(epochs, capacity);
+                int oldWords = words;
+                words = capacity >>> 6;
+                long[] wider = new long[(1 << widthBits) * words];
+                for (int p = 0; p < 1 << widthBits; p++) {
+                    System.arraycopy(rows, p * oldWords, wider, p * words, oldWords);
+                }
+                rows = wider;
+            }
+            columns = Math.max(columns, col + 1);
+            nodes[col] = node;
+            columnOf.put(node, col);
+            size++;
+            return col;
+        }
+
+        // Orders the members by the time within the period at which their next period starts
+        void schedule(long period) {
+            long[] offsetOf = new long[columns];
+            Integer[] sorted = new Integer[size];
+            int n = 0;
+            for (int col = 0; col < columns; col++) {
+                if (nodes[col] != null) {
+                    offsetOf[col] = Math.floorMod(-nodes[col].getID(), period);
+                    sorted[n++] = col;
+                }
+            }
+            Arrays.sort(sorted, Comparator.comparingLong(col -> offsetOf[col]));
+            order = new int[n];
+            offsets = new long[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = sorted[i];
+                offsets[i] = offsetOf[order[i]];
+            }
+        }
+
+        // First position in order whose offset is above offset
+        int firstAfter(long offset) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (offsets[mid] <= offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void fillColumn(int col) {
+            BloomFilter filter = filters[col];
+            int shift = widthBits - filter.widthBits();
+            int word = col >>> 6;
+            long bit = 1L << col;
+            for (int p = 0; p < 1 << widthBits; p++) {
+                if (filter.get(p >>> shift)) {
+                    rows[p * words + word] |= bit;
+                } else {
+                    rows[p * words + word] &= ~bit;
+                }
+            }
+        }
+
+        void clearColumn(int col) {
+            int word = col >>> 6;
+            long bit = 1L << col;
+            for (int p = 0; p < 1 << widthBits; p++) {
+                rows[p * words + word] &= ~bit;
+            }
+        }
+
+        // Rows at the new width, every published filter filled in again
+        void widen(int newWidthBits) {
+            widthBits = newWidthBits;
+            rows = new long[(1 << widthBits) * words];
+            for (int col = 0; col < columns; col++) {
+                if (nodes[col] != null && filters[col] != null) {
+                    fillColumn(col);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+// Runs a grid of simulations inside one JVM and collects them into one tidy table.
+//   java -cp <peersim jars>:<compiled classes> SweepRunner sweep.txt [key=value ...]
+// The sweep file (key = value lines, # comments) names:
+//  - config: base PeerSim config, and classpath: the PeerSim jars and compiled variant
+//    (default: this JVM's classpath). Or variants = a b ..., each with its own
+//    variant.<name>.config and variant.<name>.classpath, e.g. to compare variants.
+//  - param.<config key> = v1 v2 ...: one grid dimension. {protocol} in the key stands for the
+//    variant's protocol name, e.g. param.protocol.{protocol}.cache_size = 500 1000 2000
+//  - threads: points run at once (default: one per core); dir: working directory (sweep);
+//    output: the results table (sweep_results.csv); simulator: the simulator control's
+//    prefix (control.simulator).
+// Every point gets its own class loader, so PeerSim's static state (Network, CommonState,
+// Configuration) is private to it and points run concurrently. Points that differ only in
+// cache parameters or the simulator's own parameters share their bootstrap topology
+// through the initializer's topology_file: the first point of each group samples and saves
+// it, the others replay it. Each point writes its CSVs (the initializer's join_file and
+// the churn's file too) and its log to dir/point<N>; the table has one row per point and
+// summary metric (see RunSummary), plus its wall time.
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SweepRunner {
+    // Parameters that leave the bootstrap topology unchanged
+    private static final Set<String> CACHE_PARAMETERS = new HashSet<>(Arrays.asList(
+            "cache_size", "cache_policy", "lfu_aging", "cache_window", "path_cache_ttl", "cluster_cache"));
+
+    private static final PrintStream CONSOLE = System.out;
+    // Output of the point running on the current thread (and threads it starts)
+    private static final InheritableThreadLocal<PrintStream> POINT_LOG = new InheritableThreadLocal<>();
+
+    private final Properties spec;
+    private final File dir;
+    private final String simulator;
+    private final List<String> paramKeys = new ArrayList<>();
+    private final List<String[]> paramValues = new ArrayList<>();
+    private final List<Point> points = new ArrayList<>();
+    private final Map<String, Integer> topologyGroups = new HashMap<>();
+
+    // One grid point: a variant and one value per parameter
+    private static class Point {
+        int number;
+        String variant;
+        String config;
+        URL[] classpath;
+        String[] values;
+        List<String> overrides = new ArrayList<>();
+        String topologyGroup;
+        Map<String, String> summary;
+        long wallTime;
+        String error;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: SweepRunner <sweep file> [key=value ...]");
+            System.exit(1);
+        }
+        Properties spec = new Properties();
+        try (Reader in = new FileReader(args[0])) {
+            spec.load(in);
+        }
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            spec.setProperty(args[i].substring(0, eq).trim(), args[i].substring(eq + 1).trim());
+        }
+        new SweepRunner(spec).run();
+    }
+
+    public SweepRunner(Properties spec) throws IOException {
+        this.spec = spec;
+        this.dir = new File(spec.getProperty("dir", "sweep"));
+        this.simulator = spec.getProperty("simulator", "control.simulator");
+        for (String key : new TreeSet<>(spec.stringPropertyNames())) {
+            if (key.startsWith("param.")) {
+                paramKeys.add(key.substring("param.".length()));
+                paramValues.add(spec.getProperty(key).trim().split("[\\s,]+"));
+            }
+        }
+
+        String variants = spec.getProperty("variants");
+        for (String variant : variants != null ? variants.trim().split("\\s+") : new String[] { "" }) {
+            String at = variant.isEmpty() ? "" : "variant." + variant + ".";
+            String config = spec.getProperty(at + "config");
+            if (config == null) {
+                throw new IllegalArgumentException("Missing " + at + "config");
+            }
+            URL[] classpath = classpath(spec.getProperty(at + "classpath", System.getProperty("java.class.path")));
+            Properties base = new Properties();
+            try (Reader in = new FileReader(config)) {
+                base.load(in);
+            }
+            String protocol = base.getProperty(simulator + ".protocol", "");
+            String init = initializerOf(base, protocol);
+            String churn = churnOf(base, simulator);
+            addPoints(variant, config, classpath, protocol, init, churn, 0, new String[paramKeys.size()]);
+        }
+    }
+
+    // Adds the points for every combination of the parameters from index on
+    private void addPoints(String variant, String config, URL[] classpath, String protocol, String init,
+                           String churn, int index, String[] values) {
+        if (index < paramKeys.size()) {
+            for (String value : paramValues.get(index)) {
+                values[index] = value;
+                addPoints(variant, config, classpath, protocol, init, churn, index + 1, values);
+            }
+            return;
+        }
+        Point point = new Point();
+        point.number = points.size() + 1;
+        point.variant = variant;
+        point.config = config;
+        point.classpath = classpath;
+        point.values = values.clone();
+
+        StringBuilder group = new StringBuilder(variant);
+        for (int i = 0; i < paramKeys.size(); i++) {
+            String key = paramKeys.get(i).replace("{protocol}", protocol);
+            point.overrides.add(key + "=" + values[i]);
+            if (!CACHE_PARAMETERS.contains(key.substring(key.lastIndexOf('.') + 1))
+                    && !key.startsWith(simulator + ".")) {
+                group.append('/').append(key).append('=').append(values[i]);
+            }
+        }
+        File pointDir = new File(dir, "point" + point.number);
+        point.overrides.add(simulator + ".output_dir=" + pointDir.getPath());
+        point.overrides.add(simulator + ".summary_file=summary.csv");
+        if (churn != null) {
+            point.overrides.add(churn + ".output_dir=" + pointDir.getPath());
+        }
+        if (init != null) {
+            point.overrides.add(init + ".output_dir=" + pointDir.getPath());
+            point.topologyGroup = group.toString();
+            int groupNumber = topologyGroups.computeIfAbsent(point.topologyGroup, g -> topologyGroups.size() + 1);
+            point.overrides.add(init + ".topology_file=" + new File(dir, "topology" + groupNumber + ".bin").getPath());
+        }
+        points.add(point);
+    }
+
+    public void run() throws Exception {
+        dir.mkdirs();
+        for (Point point : points) {
+            new File(dir, "point" + point.number).mkdirs();
+        }
+        System.setOut(new PrintStream(new RoutedStream(CONSOLE), true));
+        System.setErr(new PrintStream(new RoutedStream(System.err), true));
+
+        int threads = Integer.parseInt(spec.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // The first point of each topology group builds its topology file before the
+            // rest of the group may read it
+            List<Point> first = new ArrayList<>();
+            List<Point> rest = new ArrayList<>();
+            Set<String> groups = new HashSet<>();
+            for (Point point : points) {
+                if (point.topologyGroup == null || groups.add(point.topologyGroup)) {
+                    first.add(point);
+                } else {
+                    rest.add(point);
+                }
+            }
+            runAll(pool, first);
+            runAll(pool, rest);
+        } finally {
+            pool.shutdown();
+        }
+        writeTable(new File(spec.getProperty("output", "sweep_results.csv")));
+    }
+
+    private void runAll(ExecutorService pool, List<Point> batch) throws Exception {
+        List<Future<?>> running = new ArrayList<>();
+        for (Point point : batch) {
+            running.add(pool.submit(() -> runPoint(point)));
+        }
+        for (Future<?> f : running) {
+            f.get();
+        }
+    }
+
+    // Runs one PeerSim experiment in a fresh class loader, as peersim.Simulator would
+    private void runPoint(Point point) {
+        File pointDir = new File(dir, "point" + point.number);
+        long start = System.currentTimeMillis();
+        try (PrintStream log = new PrintStream(new FileOutputStream(new File(pointDir, "log.txt")), true);
+             URLClassLoader loader = new URLClassLoader(point.classpath, ClassLoader.getPlatformClassLoader())) {
+            POINT_LOG.set(log);
+            Thread.currentThread().setContextClassLoader(loader);
+            List<String> args = new ArrayList<>();
+            args.add(point.config);
+            args.addAll(point.overrides);
+
+            Object properties = loader.loadClass("peersim.config.ParsedProperties")
+                    .getConstructor(String[].class).newInstance((Object) args.toArray(new String[0]));
+            loader.loadClass("peersim.config.Configuration").getMethod("setConfig", Properties.class)
+                    .invoke(null, properties);
+            Class<?> simulatorClass = loader.loadClass("peersim.Simulator");
+            int simID = (Integer) simulatorClass.getMethod("getSimID").invoke(null);
+            String engine;
+            if (simID == simulatorClass.getField("CDSIM").getInt(null)) {
+                engine = "peersim.cdsim.CDSimulator";
+            } else if (simID == simulatorClass.getField("EDSIM").getInt(null)) {
+                engine = "peersim.edsim.EDSimulator";
+            } else {
+                throw new IllegalStateException("unable to determine simulation engine type");
+            }
+            loader.loadClass(engine).getMethod("nextExperiment").invoke(null);
+            point.summary = RunSummary.read(new File(pointDir, "summary.csv"));
+        } catch (InvocationTargetException e) {
+            point.error = String.valueOf(e.getCause());
+        } catch (Exception e) {
+            point.error = String.valueOf(e);
+        } finally {
+            POINT_LOG.remove();
+            Thread.currentThread().setContextClassLoader(null);
+        }
+        point.wallTime = System.currentTimeMillis() - start;
+        CONSOLE.printf("Point %d/%d %s%s: %s in %d ms%n", point.number, points.size(), point.variant,
+                point.overrides.subList(0, paramKeys.size()), point.error != null ? "FAILED " + point.error : "done",
+                point.wallTime);
+    }
+
+    private void writeTable(File file) {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.print("Point,Variant");
+            for (String key : paramKeys) {
+                writer.print("," + key);
+            }
+            writer.println(",Metric,Value");
+            for (Point point : points) {
+                StringBuilder prefix = new StringBuilder().append(point.number).append(',').append(point.variant);
+                for (String value : point.values) {
+                    prefix.append(',').append(value);
+                }
+                if (point.error != null) {
+                    writer.println(prefix + ",Error," + point.error.replace(',', ';'));
+                } else {
+                    for (Map.Entry<String, String> e : point.summary.entrySet()) {
+                        writer.println(prefix + "," + e.getKey() + "," + e.getValue());
+                    }
+                }
+                writer.println(prefix + ",WallTime(ms)," + point.wallTime);
+            }
+        } catch (FileNotFoundException e) {
+            System.err.println("Failed to write CSV: " + e.getMessage());
+        }
+        CONSOLE.println("Results of " + points.size() + " points written to " + file);
+    }
+
+    // The initializer prefix (init.<name>) that bootstraps the given protocol, or null
+    private static String initializerOf(Properties config, String protocol) {
+        for (String key : new TreeSet<>(config.stringPropertyNames())) {
+            if (key.startsWith("init.") && key.endsWith(".protocol") && protocol.equals(config.getProperty(key).trim())) {
+                return key.substring(0, key.length() - ".protocol".length());
+            }
+        }
+        return null;
+    }
+
+    // Prefix of the config's Churn, if any: named by the simulator's churn parameter, or
+    // declared as a control of event-driven runs
+    private static String churnOf(Properties config, String simulator) {
+        String churn = config.getProperty(simulator + ".churn");
+        if (churn != null) return churn.trim();
+        for (String key : new TreeSet<>(config.stringPropertyNames())) {
+            if (key.startsWith("control.") && key.indexOf('.', "control.".length()) < 0
+                    && config.getProperty(key).trim().equals("Churn")) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static URL[] classpath(String entries) throws MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : entries.trim().split("[\\s" + File.pathSeparator + "]+")) {
+            if (!entry.isEmpty()) {
+                urls.add(new File(entry).toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    // Sends whatever the running point prints to its log, everything else to the console
+    private static class RoutedStream extends OutputStream {
+        private final PrintStream fallback;
+
+        RoutedStream(PrintStream fallback) {
+            this.fallback = fallback;
+        }
+
+        private PrintStream target() {
+            PrintStream log = POINT_LOG.get();
+            return log != null ? log : fallback;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+// Bootstrap peers of every node (network indices), saved by an initializer with
+// `topology_file` set so that later runs of the same network skip the sampling and offer the
+// same peers in the same order. The file records the seed, network size and peers per node;
+// a file written for a different network is ignored and rewritten. Runs that differ only
+// in cache parameters (e.g. the points of a SweepRunner grid) share one file.
+import java.io.*;
+
+public final class TopologySnapshot {
+    private static final int MAGIC = 0x4B414451; // "KADQ"
+
+    private TopologySnapshot() {
+    }
+
+    // The saved peers (laid out as by BootstrapPeers.sample), or null if the file is missing
+    // or describes another network
+    public static int[] load(String file, long seed, int nodes, int perNode) {
+        File f = new File(file);
+        if (!f.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC || in.readLong() != seed || in.readInt() != nodes || in.readInt() != perNode) {
+                return null;
+            }
+            int[] peers = new int[nodes * perNode];
+            for (int i = 0; i < peers.length; i++) {
+                peers[i] = in.readInt();
+            }
+            return peers;
+        } catch (IOException e) {
+            System.err.println("Ignoring topology file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static void save(String file, long seed, int nodes, int perNode, int[] peers) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(seed);
+            out.writeInt(nodes);
+            out.writeInt(perNode);
+            for (int peer : peers) {
+                out.writeInt(peer);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write topology file " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// Streams a trace written by TraceWriter through a sliding memory-mapped window, so traces
+// far larger than the heap replay without copying them in. Each record is big-endian:
+//   int initiator (network index), byte flags (1 = STORE, 2 = LOOKUP),
+//   long storeKey, long lookupKey (-1 when the operation is absent)
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+public class TraceReader implements Closeable {
+    // Window size, a whole number of records so none straddles two windows
+    private static final long WINDOW_BYTES = (64L << 20) / TraceWriter.RECORD_BYTES * TraceWriter.RECORD_BYTES;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position = TraceWriter.HEADER_BYTES;
+
+    // The record read by the last call to next()
+    private int initiator;
+    private int flags;
+    private long storeKey;
+    private long lookupKey;
+
+    public TraceReader(String path) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.size = channel.size();
+        if (size < TraceWriter.HEADER_BYTES) {
+            channel.close();
+            throw new IOException(path + " is not a workload trace (too short)");
+        }
+        map(0);
+        int magic = window.getInt();
+        int version = window.getInt();
+        if (magic != TraceWriter.MAGIC || version != TraceWriter.VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a version " + TraceWriter.VERSION + " workload trace");
+        }
+    }
+
+    public long records() {
+        return (size - TraceWriter.HEADER_BYTES) / TraceWriter.RECORD_BYTES;
+    }
+
+    // Advances to the next record; false at the end of the trace
+    public boolean next() throws IOException {
+        if (position + TraceWriter.RECORD_BYTES > size) return false;
+        if (position + TraceWriter.RECORD_BYTES > windowStart + window.limit()) {
+            map(position);
+        }
+        window.position((int) (position - windowStart));
+        initiator = window.getInt();
+        flags = window.get();
+        storeKey = window.getLong();
+        lookupKey = window.getLong();
+        position += TraceWriter.RECORD_BYTES;
+        return true;
+    }
+
+    public int initiator() {
+        return initiator;
+    }
+
+    public long storeKey() {
+        return (flags & TraceWriter.FLAG_STORE) != 0 ? storeKey : Workload.NONE;
+    }
+
+    public long lookupKey() {
+        return (flags & TraceWriter.FLAG_LOOKUP) != 0 ? lookupKey : Workload.NONE;
+    }
+
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+    }
+}
@@ -0,0 +1,40 @@
+// Writes a workload trace: an 8-byte header (magic, version) followed by one fixed-size
+// record per request, see TraceReader for the layout
+import java.io.*;
+
+public class TraceWriter implements Closeable {
+    static final int MAGIC = 0x484B5452; // "HKTR"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_BYTES = 21;
+
+    static final int FLAG_STORE = 1;
+    static final int FLAG_LOOKUP = 2;
+
+    private final DataOutputStream out;
+    private long records = 0;
+
+    public TraceWriter(String path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    // storeKey / lookupKey are Workload.NONE when the request has no such operation
+    public void write(int initiator, long storeKey, long lookupKey) throws IOException {
+        int flags = (storeKey != Workload.NONE ? FLAG_STORE : 0) | (lookupKey != Workload.NONE ? FLAG_LOOKUP : 0);
+        out.writeInt(initiator);
+        out.writeByte(flags);
+        out.writeLong(storeKey);
+        out.writeLong(lookupKey);
+        records++;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
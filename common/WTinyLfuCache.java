@@ -0,0 +1,217 @@
+// W-TinyLFU (Einziger, Friedman and Manes): new keys enter a small LRU window; what falls out
+// of the window competes with the main region's eviction victim and is admitted only if the
+// FrequencySketch has seen it more often. The main region is a segmented LRU, where a hit in
+// probation promotes an entry to the protected segment (80% of the main region). A one-off
+// scan therefore passes through the window without displacing the popular keys.
+import peersim.core.*;
+import java.util.function.LongConsumer;
+
+public class WTinyLfuCache implements ContentCache {
+    private static final int NIL = -1;
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final int capacity;
+    private final int[] limit = new int[3];
+    private final int[] count = new int[3];
+    private final FrequencySketch sketch;
+    private final LongIntMap index;
+
+    // Entries, linked per segment from least (head) to most (tail) recently used
+    private final long[] keys;
+    private final long[] expires;
+    private final int[] segment;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] head = new int[3];
+    private final int[] tail = new int[3];
+    private int freeEntries;
+    private long insertions = 0;
+    private long evictions = 0;
+
+    // windowShare: fraction of the capacity given to the window, 0.01 in the paper
+    public WTinyLfuCache(int capacity, double windowShare) {
+        this.capacity = capacity;
+        int slots = Math.max(capacity, 0);
+        limit[WINDOW] = Math.min(slots, Math.max(1, (int) Math.round(slots * windowShare)));
+        int main = slots - limit[WINDOW];
+        limit[PROTECTED] = (int) (main * 0.8);
+        limit[PROBATION] = main - limit[PROTECTED];
+        this.sketch = new FrequencySketch(slots);
+        // One spare entry for a new key while the window's oldest waits for admission
+        this.index = new LongIntMap(slots + 1);
+        this.keys = new long[slots + 1];
+        this.expires = new long[slots + 1];
+        this.segment = new int[slots + 1];
+        this.prev = new int[slots + 1];
+        this.next = new int[slots + 1];
+        clear();
+    }
+
+    public boolean get(long contentId) {
+        sketch.increment(contentId);
+        int e = live(contentId);
+        if (e == LongIntMap.ABSENT) {
+            return false;
+        }
+        onHit(e);
+        return true;
+    }
+
+    public boolean contains(long contentId) {
+        return live(contentId) != LongIntMap.ABSENT;
+    }
+
+    public boolean peek(long contentId) {
+        int e = index.get(contentId);
+        return e != LongIntMap.ABSENT && expires[e] > CommonState.getTime();
+    }
+
+    public void put(long contentId) {
+        put(contentId, Long.MAX_VALUE);
+    }
+
+    public void put(long contentId, long expiresAt) {
+        if (capacity <= 0) {
+            return;
+        }
+        sketch.increment(contentId);
+        int e = live(contentId);
+        if (e != LongIntMap.ABSENT) {
+            onHit(e);
+            expires[e] = Math.max(expires[e], expiresAt);
+            return;
+        }
+
+        e = freeEntries;
+        freeEntries = next[e];
+        insertions++;
+        keys[e] = contentId;
+        expires[e] = expiresAt;
+        index.put(contentId, e);
+        append(WINDOW, e);
+        if (count[WINDOW] > limit[WINDOW]) {
+            admit(head[WINDOW]);
+        }
+    }
+
+    public void forEach(LongConsumer action) {
+        long now = CommonState.getTime();
+        for (int s = 0; s < 3; s++) {
+            for (int e = head[s]; e != NIL; e = next[e]) {
+                if (expires[e] > now) {
+                    action.accept(keys[e]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long insertions() {
+        return insertions;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public void clear() {
+        index.clear();
+        sketch.clear();
+        for (int s = 0; s < 3; s++) {
+            head[s] = NIL;
+            tail[s] = NIL;
+            count[s] = 0;
+        }
+        for (int e = 0; e < next.length; e++) {
+            next[e] = e + 1 < next.length ? e + 1 : NIL;
+        }
+        freeEntries = next.length > 0 ? 0 : NIL;
+    }
+
+    // Entry holding contentId, or ABSENT if there is none or it has expired (it is then removed)
+    private int live(long contentId) {
+        int e = index.get(contentId);
+        if (e != LongIntMap.ABSENT && expires[e] <= CommonState.getTime()) {
+            unlink(e);
+            evict(e);
+            return LongIntMap.ABSENT;
+        }
+        return e;
+    }
+
+    private void onHit(int e) {
+        int s = segment[e];
+        unlink(e);
+        if (s == PROBATION) {
+            append(PROTECTED, e);
+            if (count[PROTECTED] > limit[PROTECTED]) {
+                int demoted = head[PROTECTED];
+                unlink(demoted);
+                append(PROBATION, demoted);
+            }
+        } else {
+            append(s, e);
+        }
+    }
+
+    // Moves the window's oldest entry into the main region, if it beats the main region's victim
+    private void admit(int candidate) {
+        unlink(candidate);
+        if (count[PROBATION] + count[PROTECTED] < limit[PROBATION] + limit[PROTECTED]) {
+            append(PROBATION, candidate);
+            return;
+        }
+        int victim = head[PROBATION] != NIL ? head[PROBATION] : head[PROTECTED];
+        if (victim != NIL && sketch.frequency(keys[candidate]) > sketch.frequency(keys[victim])) {
+            unlink(victim);
+            evict(victim);
+            append(PROBATION, candidate);
+        } else {
+            evict(candidate);
+        }
+    }
+
+    private void evict(int e) {
+        evictions++;
+        index.remove(keys[e]);
+        next[e] = freeEntries;
+        freeEntries = e;
+    }
+
+    private void append(int s, int e) {
+        segment[e] = s;
+        prev[e] = tail[s];
+        next[e] = NIL;
+        if (tail[s] == NIL) {
+            head[s] = e;
+        } else {
+            next[tail[s]] = e;
+        }
+        tail[s] = e;
+        count[s]++;
+    }
+
+    private void unlink(int e) {
+        int s = segment[e];
+        if (prev[e] == NIL) {
+            head[s] = next[e];
+        } else {
+            next[prev[e]] = next[e];
+        }
+        if (next[e] == NIL) {
+            tail[s] = prev[e];
+        } else {
+            prev[next[e]] = prev[e];
+        }
+        count[s]--;
+    }
+}
@@ -0,0 +1,262 @@
+// Request generator for the store/lookup simulators, configured under the simulator's prefix.
+//  - read_ratio: share of requests that are a single LOOKUP, the rest are a single STORE.
+//    Without it every request is a STORE followed by a LOOKUP (`type` can drop either half).
+//  - popularity: which stored key a LOOKUP asks for. uniform (default); zipf, where the k-th
+//    stored key is read with weight 1/k^zipf_exponent; or hotspot, where hotspot_share of the
+//    reads go to the first hotspot_keys fraction of stored keys.
+//  - locality: probability that a LOOKUP targets content stored from the initiator's own
+//    cluster (popularity then applies within that cluster's keys).
+//  - proximity: new keys are the initiator's ID with the low `proximity` bits randomised.
+//  - trace_record: also write every request to this binary trace file.
+//  - trace_replay: take requests from a recorded trace instead of generating them, so
+//    several variants can run byte-identical workloads; all other parameters are ignored.
+// Keys become readable once the caller reports them with stored().
+import peersim.config.*;
+import peersim.core.*;
+import java.io.*;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class Workload {
+    public static final long NONE = -1;
+
+    private static final int UNIFORM = 0;
+    private static final int ZIPF = 1;
+    private static final int HOTSPOT = 2;
+
+    private final SplittableRandom rand;
+    private final boolean stores;
+    private final boolean lookups;
+    private final double readRatio; // < 0: every request is a STORE + LOOKUP pair
+    private final int popularity;
+    private final double zipfExponent;
+    private final double hotspotKeys;
+    private final double hotspotShare;
+    private final double locality;
+    private final int proximityBits;
+
+    private final TraceWriter recorder;
+    private final TraceReader replay;
+    // Request awaiting its trace record: written once its LOOKUP key is known
+    private boolean recordPending = false;
+    private long drawnLookupKey = NONE;
+
+    // Stored keys in the order they were stored, overall and per cluster of the storer
+    private long[] keys = new long[1024];
+    private int keyCount = 0;
+    private long[][] clusterKeys = new long[0][];
+    private int[] clusterKeyCounts = new int[0];
+
+    // Zipf sampler constants that only depend on the exponent
+    private final double zipfHIntegralX1;
+    private final double zipfS;
+
+    // The request produced by the last call to next()
+    public int initiator;
+    public long storeKey;
+    public boolean lookup;
+
+    public Workload(String prefix, int defaultProximityBits, SplittableRandom rand) {
+        this.rand = rand;
+        String type = Configuration.getString(prefix + ".type", "storelookup");
+        this.stores = type.equals("storelookup") || type.equals("store");
+        this.lookups = type.equals("storelookup") || type.equals("lookup");
+        this.readRatio = Configuration.getDouble(prefix + ".read_ratio", -1);
+        String pop = Configuration.getString(prefix + ".popularity", "uniform");
+        if (pop.equals("uniform")) {
+            this.popularity = UNIFORM;
+        } else if (pop.equals("zipf")) {
+            this.popularity = ZIPF;
+        } else if (pop.equals("hotspot")) {
+            this.popularity = HOTSPOT;
+        } else {
+            throw new IllegalParameterException(prefix + ".popularity", "expected uniform, zipf or hotspot, got " + pop);
+        }
+        this.zipfExponent = Configuration.getDouble(prefix + ".zipf_exponent", 1.0);
+        this.hotspotKeys = Configuration.getDouble(prefix + ".hotspot_keys", 0.2);
+        this.hotspotShare = Configuration.getDouble(prefix + ".hotspot_share", 0.8);
+        this.locality = Configuration.getDouble(prefix + ".locality", 0.0);
+        this.proximityBits = Configuration.getInt(prefix + ".proximity", defaultProximityBits);
+
+        this.zipfHIntegralX1 = zipfHIntegral(1.5) - 1.0;
+        this.zipfS = 2.0 - zipfHIntegralInverse(zipfHIntegral(2.5) - zipfH(2.0));
+
+        String recordPath = Configuration.getString(prefix + ".trace_record", null);
+        String replayPath = Configuration.getString(prefix + ".trace_replay", null);
+        try {
+            this.recorder = recordPath != null ? new TraceWriter(recordPath) : null;
+            this.replay = replayPath != null ? new TraceReader(replayPath) : null;
+        } catch (IOException e) {
+            throw new IllegalParameterException(prefix + (recordPath != null ? ".trace_record" : ".trace_replay"), e.getMessage());
+        }
+    }
+
+    // Draws the next request: initiator, the key to STORE (NONE if none) and whether a LOOKUP
+    // follows; the LOOKUP key itself is drawn by lookupKey() once the STORE has been made.
+    // Returns false once a replayed trace is exhausted.
+    public boolean next() {
+        flushRecord();
+        if (replay != null) {
+            return nextFromTrace();
+        }
+        recordPending = recorder != null;
+        drawnLookupKey = NONE;
+
+        // Nodes that left (see Churn) stay in the network but start nothing
+        do {
+            initiator = rand.nextInt(Network.size());
+        } while (!Network.get(initiator).isUp());
+        long nodeId = Network.get(initiator).getID();
+        if (readRatio < 0) {
+            // STORE + LOOKUP pair; the key is drawn even when `type` drops the STORE
+            long key = keyNear(nodeId, nextOffset());
+            storeKey = stores ? key : NONE;
+            lookup = lookups;
+        } else {
+            lookup = keyCount > 0 && rand.nextDouble() < readRatio;
+            storeKey = lookup ? NONE : keyNear(nodeId, nextOffset());
+        }
+        return true;
+    }
+
+    // Makes a stored key available to later lookups
+    public void stored(long key, int cluster) {
+        if (keyCount == keys.length) {
+            keys = Arrays.copyOf(keys, keyCount * 2);
+        }
+        keys[keyCount++] = key;
+
+        if (cluster >= clusterKeys.length) {
+            clusterKeys = Arrays.copyOf(clusterKeys, cluster + 1);
+            clusterKeyCounts = Arrays.copyOf(clusterKeyCounts, cluster + 1);
+        }
+        long[] own = clusterKeys[cluster];
+        if (own == null) {
+            own = clusterKeys[cluster] = new long[64];
+        } else if (clusterKeyCounts[cluster] == own.length) {
+            own = clusterKeys[cluster] = Arrays.copyOf(own, own.length * 2);
+        }
+        own[clusterKeyCounts[cluster]++] = key;
+    }
+
+    // Key for a LOOKUP by a node of the given cluster, or NONE if nothing has been stored yet
+    public long lookupKey(int cluster) {
+        if (replay != null) return replay.lookupKey();
+        if (keyCount == 0) return NONE;
+        long key;
+        if (locality > 0 && cluster < clusterKeys.length && clusterKeyCounts[cluster] > 0
+                && rand.nextDouble() < locality) {
+            key = clusterKeys[cluster][pick(clusterKeyCounts[cluster])];
+        } else {
+            key = keys[pick(keyCount)];
+        }
+        drawnLookupKey = key;
+        return key;
+    }
+
+    // Writes out the last recorded request and closes any trace files
+    public void close() {
+        flushRecord();
+        try {
+            if (recorder != null) recorder.close();
+            if (replay != null) replay.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean nextFromTrace() {
+        try {
+            if (!replay.next()) return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        initiator = replay.initiator();
+        if (initiator >= Network.size()) {
+            throw new IllegalStateException("Trace initiator " + initiator + " does not exist in a network of " + Network.size() + " nodes");
+        }
+        storeKey = replay.storeKey();
+        lookup = replay.lookupKey() != NONE;
+        return true;
+    }
+
+    private void flushRecord() {
+        if (!recordPending) return;
+        recordPending = false;
+        try {
+            recorder.write(initiator, storeKey, lookup ? drawnLookupKey : NONE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Index in [0, n) by the configured popularity; index 0 is the oldest, most popular key
+    private int pick(int n) {
+        switch (popularity) {
+            case ZIPF:
+                return zipfRank(n) - 1;
+            case HOTSPOT:
+                int hot = Math.max(1, (int) Math.ceil(n * hotspotKeys));
+                if (hot >= n || rand.nextDouble() < hotspotShare) {
+                    return rand.nextInt(hot);
+                }
+                return hot + rand.nextInt(n - hot);
+            default:
+                return rand.nextInt(n);
+        }
+    }
+
+    private long nextOffset() {
+        return rand.nextLong() & ((1L << proximityBits) - 1);
+    }
+
+    private static long keyNear(long nodeId, long offset) {
+        return (nodeId ^ offset) & 0xffffffffL;
+    }
+
+    // Rejection-inversion sampling (Hormann and Derflinger) of a Zipf rank in [1, n]: O(1) per
+    // draw with no per-n tables, so the key population can keep growing
+    private int zipfRank(int n) {
+        double hIntegralN = zipfHIntegral(n + 0.5);
+        while (true) {
+            double u = hIntegralN + rand.nextDouble() * (zipfHIntegralX1 - hIntegralN);
+            double x = zipfHIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= zipfS || u >= zipfHIntegral(k + 0.5) - zipfH(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double zipfH(double x) {
+        return Math.exp(-zipfExponent * Math.log(x));
+    }
+
+    private double zipfHIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - zipfExponent) * logX) * logX;
+    }
+
+    private double zipfHIntegralInverse(double x) {
+        double t = x * (1.0 - zipfExponent);
+        if (t < -1.0) {
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log1p(x) / x, stable near 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // expm1(x) / x, stable near 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}
@@ -6,56 +6,74 @@
 
 import peersim.core.*;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 import peersim.config.*;
-import peersim.edsim.*;
+import peersim.dynamics.*;
 
-public class HKademliaInitializer implements Control {
+public class HKademliaInitializer implements Control, NodeInitializer {
 
     private final String protocol;
+    private final String topologyFile;
+    private final JoinBootstrap join;
+    private final boolean joinAtStart; // bootstrap = join rather than random peers
 
     public HKademliaInitializer(String prefix) {
         this.protocol = Configuration.getString(prefix + ".protocol");
+        this.topologyFile = Configuration.getString(prefix + ".topology_file", null);
+        this.join = new JoinBootstrap(prefix);
+        this.joinAtStart = JoinBootstrap.configured(prefix);
     }
 
     public boolean execute() {
         int pid = Configuration.lookupPid(protocol);
         int numClusters = Configuration.getInt("protocol." + protocol + ".clusters", 5);
+        ClusterIndex clusterIndex = new ClusterIndex(numClusters);
 
         for (int i = 0; i < Network.size(); i++) {
             Node node = Network.get(i);
             HKademliaProtocol prot = (HKademliaProtocol) node.getProtocol(pid);
-            prot.setClusterId(i % numClusters);
-        }
-        // Fill KBuckets for each peer
-        for (int i = 0; i < Network.size(); i++) {
-            Node node = Network.get(i);
-            HKademliaProtocol protocol = (HKademliaProtocol) node.getProtocol(pid);
-            int kValue = protocol.getKadK();
-            int targetSize = Math.max(1, kValue / 2);
-
-            // Create a list of candidate nodes (all nodes except self)
-            List<Node> candidates = new ArrayList<>();
-            for (int j = 0; j < Network.size(); j++) {
-                if (i != j) {
-                    candidates.add(Network.get(j));
-                }
+            prot.setSelfNode(node);
+            // Follow the latency topology when the model has one, otherwise round-robin
+            int cluster = prot.topologyCluster(numClusters);
+            prot.setClusterId(cluster >= 0 ? cluster : i % numClusters);
+            prot.setClusterIndex(clusterIndex);
+            // Joining nodes enter the index as they join (see JoinBootstrap)
+            if (!joinAtStart) {
+                prot.joinCluster();
             }
-            
-            // Shuffle the list to get random selection
-            Collections.shuffle(candidates, CommonState.r);
-
-            int numToAdd = Math.min(targetSize, candidates.size());
-            for (int j = 0; j < numToAdd; j++) {
-                protocol.addPeer(node, candidates.get(j));
+        }
+        if (joinAtStart) {
+            join.run(pid);
+            return false;
+        }
+        // Fill KBuckets for each peer with kadK / 2 random peers (see BootstrapPeers). With
+        // topology_file set, the peers an earlier run of the same network chose are replayed
+        int n = Network.size();
+        int targetSize = n > 1 ? Math.min(n - 1, Math.max(1, ((HKademliaProtocol) Network.get(0).getProtocol(pid)).getKadK() / 2)) : 0;
+        long seed = CommonState.r.getLastSeed();
+        int[] peers = topologyFile != null ? TopologySnapshot.load(topologyFile, seed, n, targetSize) : null;
+        if (peers == null) {
+            peers = BootstrapPeers.sample(n, targetSize, seed);
+            if (topologyFile != null) {
+                TopologySnapshot.save(topologyFile, seed, n, targetSize, peers);
             }
         }
-
-
+        BootstrapPeers.offer(peers, targetSize, pid);
 
         return false;
     }
+
+    // A node arriving during the run (see Churn), already in the network: clustered as at
+    // startup and added to the shared cluster index, then joined through live contacts
+    // (see JoinBootstrap)
+    public void initialize(Node node) {
+        int pid = Configuration.lookupPid(protocol);
+        int numClusters = Configuration.getInt("protocol." + protocol + ".clusters", 5);
+        HKademliaProtocol prot = (HKademliaProtocol) node.getProtocol(pid);
+        prot.setSelfNode(node);
+        int cluster = prot.topologyCluster(numClusters);
+        prot.setClusterId(cluster >= 0 ? cluster : node.getIndex() % numClusters);
+        prot.setClusterIndex(((HKademliaProtocol) Network.get(0).getProtocol(pid)).getClusterIndex());
+        prot.joinCluster();
+        join.joinLive(node, pid);
+    }
 }
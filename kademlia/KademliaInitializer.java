@@ -1,54 +1,66 @@
 // Assigns each peer to a cluster (for metrics), and initializes their K-Buckets
 import peersim.core.*;
 import peersim.config.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import peersim.dynamics.*;
 
-public class KademliaInitializer implements Control {
+public class KademliaInitializer implements Control, NodeInitializer {
 
     private final String protocol;
+    private final String topologyFile;
+    private final JoinBootstrap join;
+    private final boolean joinAtStart; // bootstrap = join rather than random peers
     private final int numClusters; // Configuration for number of clusters
 
     public KademliaInitializer(String prefix) {
         this.protocol = Configuration.getString(prefix + ".protocol");
+        this.topologyFile = Configuration.getString(prefix + ".topology_file", null);
+        this.join = new JoinBootstrap(prefix);
+        this.joinAtStart = JoinBootstrap.configured(prefix);
         this.numClusters = Configuration.getInt(prefix + ".clusters", 5); // Default to 5 clusters
     }
 
     public boolean execute() {
         int pid = Configuration.lookupPid(protocol);
 
-        // Assign each peer to a cluster (for metrics)
+        // Bind each protocol to its node and assign each peer to a cluster (for metrics)
         for (int i = 0; i < Network.size(); i++) {
             Node node = Network.get(i);
             KademliaProtocol prot = (KademliaProtocol) node.getProtocol(pid);
-            prot.setClusterId(i % numClusters);
+            prot.setSelfNode(node);
+            // Follow the latency topology when the model has one, otherwise round-robin
+            int cluster = prot.topologyCluster(numClusters);
+            prot.setClusterId(cluster >= 0 ? cluster : i % numClusters);
+        }
+        if (joinAtStart) {
+            join.run(pid);
+            return false;
         }
 
-        // Fill KBuckets for each peer
-        for (int i = 0; i < Network.size(); i++) {
-            Node node = Network.get(i);
-            KademliaProtocol protocol = (KademliaProtocol) node.getProtocol(pid);
-            int kValue = protocol.getKadK();
-            int targetSize = Math.max(1, kValue / 2);
-
-            // Create a list of candidate nodes (all nodes except self)
-            List<Node> candidates = new ArrayList<>();
-            for (int j = 0; j < Network.size(); j++) {
-                if (i != j) {
-                    candidates.add(Network.get(j));
-                }
-            }
-
-            // Shuffle the list to get a random selection
-            Collections.shuffle(candidates, CommonState.r);
-
-            int numToAdd = Math.min(targetSize, candidates.size());
-            for (int j = 0; j < numToAdd; j++) {
-                protocol.addPeer(node, candidates.get(j));
+        // Fill KBuckets for each peer with kadK / 2 random peers (see BootstrapPeers). With
+        // topology_file set, the peers an earlier run of the same network chose are replayed
+        int n = Network.size();
+        int targetSize = n > 1 ? Math.min(n - 1, Math.max(1, ((KademliaProtocol) Network.get(0).getProtocol(pid)).getKadK() / 2)) : 0;
+        long seed = CommonState.r.getLastSeed();
+        int[] peers = topologyFile != null ? TopologySnapshot.load(topologyFile, seed, n, targetSize) : null;
+        if (peers == null) {
+            peers = BootstrapPeers.sample(n, targetSize, seed);
+            if (topologyFile != null) {
+                TopologySnapshot.save(topologyFile, seed, n, targetSize, peers);
             }
         }
+        BootstrapPeers.offer(peers, targetSize, pid);
 
         return false;
     }
-}
\ No newline at end of file
+
+    // A node arriving during the run (see Churn), already in the network: clustered as at
+    // startup, then joined through live contacts (see JoinBootstrap)
+    public void initialize(Node node) {
+        int pid = Configuration.lookupPid(protocol);
+        KademliaProtocol prot = (KademliaProtocol) node.getProtocol(pid);
+        prot.setSelfNode(node);
+        int cluster = prot.topologyCluster(numClusters);
+        prot.setClusterId(cluster >= 0 ? cluster : node.getIndex() % numClusters);
+        join.joinLive(node, pid);
+    }
+}